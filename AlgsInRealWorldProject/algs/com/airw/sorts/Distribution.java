@@ -0,0 +1,141 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.airw.arrays.EmptyCacheArray;
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+
+/**
+ * One distribution pass over a range, shared by SampleSort and the multiway
+ * mode of QuickSort. A first read counts the records per bucket and a second
+ * scatters them through a block buffer per bucket into their bucket
+ * positions in one scratch array.
+ * 
+ * Bucket 2i holds the records between splitter i - 1 and splitter i and
+ * bucket 2i + 1 the records equal to splitter i, which need no further
+ * sorting. Records keep their order within a bucket.
+ * 
+ * @param <T>
+ */
+final class Distribution<T extends CacheObject> {
+
+    private List<T> splitters;
+    private Comparator<T> comp;
+    private long[] starts;
+    private EmptyCacheArray<T> scratch;
+
+    /**
+     * Distributes the records of src from index from up to to.
+     * 
+     * @param splitters
+     *            Sorted, distinct splitters, as chosen by splitters().
+     * @param bufferRecords
+     *            Size of each bucket buffer, normally a block.
+     * @throws IOException
+     */
+    Distribution(CacheArray<T> src, long from, long to, List<T> splitters,
+            Comparator<T> comp, int bufferRecords) throws IOException {
+        this.splitters = splitters;
+        this.comp = comp;
+        int numBuckets = 2 * splitters.size() + 1;
+
+        starts = new long[numBuckets + 1];
+        RunReader<T> reader = new RunReader<T>(src, from, to, bufferRecords);
+        while (reader.hasNext()) {
+            starts[bucketOf(reader.next()) + 1]++;
+        }
+        for (int b = 0; b < numBuckets; b++) {
+            starts[b + 1] += starts[b];
+        }
+
+        scratch = new EmptyCacheArray<T>(src.getFactory(), to - from,
+                src.getCache());
+        List<RunWriter<T>> writers = new ArrayList<RunWriter<T>>(numBuckets);
+        for (int b = 0; b < numBuckets; b++) {
+            writers.add(starts[b] == starts[b + 1] ? null : new RunWriter<T>(
+                    scratch, starts[b], bufferRecords));
+        }
+        reader = new RunReader<T>(src, from, to, bufferRecords);
+        while (reader.hasNext()) {
+            reader.transferTo(writers.get(bucketOf(reader.peek())));
+        }
+        for (RunWriter<T> writer : writers) {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * Sorts a sample and picks up to k - 1 distinct splitters spread evenly
+     * over it.
+     */
+    static <T> List<T> splitters(List<T> sample, int k, Comparator<T> comp) {
+        Collections.sort(sample, comp);
+        List<T> splitters = new ArrayList<T>(k - 1);
+        for (int i = 1; i < k; i++) {
+            T s = sample.get(i * sample.size() / k);
+            if (splitters.isEmpty()
+                    || comp.compare(splitters.get(splitters.size() - 1), s) < 0) {
+                splitters.add(s);
+            }
+        }
+        return splitters;
+    }
+
+    int numBuckets() {
+        return starts.length - 1;
+    }
+
+    /**
+     * @return Whether bucket b holds records equal to a splitter.
+     */
+    static boolean holdsEqualKeys(int b) {
+        return b % 2 == 1;
+    }
+
+    /**
+     * @return Index of the first record of bucket b in the scratch array.
+     */
+    long bucketStart(int b) {
+        return starts[b];
+    }
+
+    long bucketSize(int b) {
+        return starts[b + 1] - starts[b];
+    }
+
+    /**
+     * @return The scratch array holding the records, bucket after bucket.
+     */
+    EmptyCacheArray<T> getScratch() {
+        return scratch;
+    }
+
+    void close() throws IOException {
+        scratch.close();
+    }
+
+    private int bucketOf(T v) {
+        int lo = 0;
+        int hi = splitters.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comp.compare(splitters.get(mid), v) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        if (lo < splitters.size() && comp.compare(splitters.get(lo), v) == 0) {
+            return 2 * lo + 1;
+        }
+        return 2 * lo;
+    }
+
+}
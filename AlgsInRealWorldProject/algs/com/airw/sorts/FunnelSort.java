@@ -0,0 +1,244 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.Comparator;
+
+import com.airw.arrays.EmptyCacheArray;
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+
+/**
+ * Cache-oblivious lazy funnelsort (Brodal and Fagerberg). A range of n items
+ * is cut into k = n^(1/3) segments of n^(2/3) items, each segment is sorted
+ * recursively, and the segments are merged with a k-funnel. Nothing here
+ * depends on the block or cache size, yet the number of block transfers
+ * meets the sorting bound for any block and cache size with a tall cache.
+ * 
+ * A k-funnel is a binary merge tree with the segments as leaves. Each edge
+ * below the root holds a buffer of about j^(3/2) items, where j is the
+ * number of leaves below the edge. Merging is lazy: a node fills its buffer
+ * from its children and refills a child's buffer only when it runs empty.
+ * All buffers of a funnel share one scratch array, in depth first order so
+ * that the buffers of every subtree are contiguous.
+ * 
+ * @param <T>
+ */
+public class FunnelSort<T extends CacheObject> extends Sort<T> {
+
+    // Ranges this short are insertion sorted.
+    private static final long BASE_SIZE = 16;
+
+    public FunnelSort(CacheArray<T> array, Comparator<T> comp) {
+        super(array, comp);
+    }
+
+    public void sort() throws IOException {
+        funnelAux(0, array.size());
+    }
+
+    // Sorts elements from lowIndex to highIndex - 1.
+    public void funnelAux(long lowIndex, long highIndex) throws IOException {
+        long numElems = highIndex - lowIndex;
+        if (numElems <= BASE_SIZE) {
+            insertionSort(lowIndex, highIndex);
+            return;
+        }
+
+        int k = (int) Math.max(2, Math.ceil(Math.cbrt(numElems)));
+        long segmentSize = (numElems + k - 1) / k;
+        k = (int) ((numElems + segmentSize - 1) / segmentSize);
+        long[] bounds = new long[k + 1];
+        for (int i = 0; i < k; i++) {
+            bounds[i] = lowIndex + i * segmentSize;
+            funnelAux(bounds[i], Math.min(bounds[i] + segmentSize, highIndex));
+        }
+        bounds[k] = highIndex;
+
+        EmptyCacheArray<T> merged = new EmptyCacheArray<T>(
+                array.getFactory(), numElems, array.getCache());
+        new Funnel(bounds).mergeInto(merged);
+        merged.copyRange(0, array, lowIndex, numElems);
+        merged.close();
+    }
+
+    private void insertionSort(long lowIndex, long highIndex)
+            throws IOException {
+        for (long i = lowIndex + 1; i < highIndex; i++) {
+            T v = array.get(i);
+            long j = i - 1;
+            while (j >= lowIndex && comp.compare(array.get(j), v) > 0) {
+                array.set(j + 1, array.get(j));
+                j--;
+            }
+            array.set(j + 1, v);
+        }
+    }
+
+    /**
+     * A k-funnel over sorted segments of array. Nodes are numbered as in a
+     * heap: node 1 is the root, the children of node v are 2v and 2v + 1,
+     * and nodes k to 2k - 1 are the leaves. Segments are handed to the
+     * leaves from left to right, so ties resolved towards the left child
+     * keep the merge stable.
+     */
+    private class Funnel {
+
+        private int k;
+        private EmptyCacheArray<T> buffers;
+        // Per internal node: the circular buffer on the edge above it.
+        private long[] bufStart;
+        private long[] bufSize;
+        private long[] bufHead;
+        private long[] bufCount;
+        // Per leaf: the unread part of its segment.
+        private long[] pos;
+        private long[] end;
+        // Whether a node will receive no more items from below.
+        private boolean[] drained;
+        // Decoded head of each node, or null if not known.
+        private Object[] heads;
+
+        Funnel(long[] bounds) throws IOException {
+            k = bounds.length - 1;
+            bufStart = new long[k];
+            bufSize = new long[k];
+            bufHead = new long[k];
+            bufCount = new long[k];
+            pos = new long[k];
+            end = new long[k];
+            drained = new boolean[2 * k];
+            heads = new Object[2 * k];
+            assignSegments(1, bounds, 0);
+            // The root writes straight to the output and needs no buffer.
+            long total = layout(3, layout(2, 0));
+            buffers = new EmptyCacheArray<T>(array.getFactory(), Math.max(1,
+                    total), array.getCache());
+        }
+
+        /**
+         * Hands the segments from index segment on to the leaves below v, in
+         * left to right order.
+         * 
+         * @return The next segment to hand out.
+         */
+        private int assignSegments(int v, long[] bounds, int segment) {
+            if (v >= k) {
+                pos[v - k] = bounds[segment];
+                end[v - k] = bounds[segment + 1];
+                return segment + 1;
+            }
+            return assignSegments(2 * v + 1, bounds,
+                    assignSegments(2 * v, bounds, segment));
+        }
+
+        /**
+         * Assigns buffers to the subtree of node v in depth first order.
+         * 
+         * @return The first free offset after the subtree.
+         */
+        private long layout(int v, long offset) {
+            if (v >= k) {
+                return offset;
+            }
+            double leaves = leaves(v);
+            bufStart[v] = offset;
+            bufSize[v] = (long) Math.ceil(leaves * Math.sqrt(leaves));
+            offset += bufSize[v];
+            offset = layout(2 * v, offset);
+            return layout(2 * v + 1, offset);
+        }
+
+        private int leaves(int v) {
+            return v >= k ? 1 : leaves(2 * v) + leaves(2 * v + 1);
+        }
+
+        void mergeInto(CacheArray<T> out) throws IOException {
+            long next = 0;
+            while (true) {
+                refillChildren(1);
+                int c = smallerChild(1);
+                if (c < 0) {
+                    break;
+                }
+                out.set(next++, take(c));
+            }
+            buffers.close();
+        }
+
+        /**
+         * Fills the buffer of internal node v until it is full or nothing is
+         * left below it.
+         */
+        private void fill(int v) throws IOException {
+            while (bufCount[v] < bufSize[v]) {
+                refillChildren(v);
+                int c = smallerChild(v);
+                if (c < 0) {
+                    drained[v] = true;
+                    return;
+                }
+                buffers.set(bufStart[v] + (bufHead[v] + bufCount[v])
+                        % bufSize[v], take(c));
+                bufCount[v]++;
+            }
+        }
+
+        private void refillChildren(int v) throws IOException {
+            for (int c = 2 * v; c <= 2 * v + 1; c++) {
+                if (c < k && bufCount[c] == 0 && !drained[c]) {
+                    fill(c);
+                }
+            }
+        }
+
+        /**
+         * @return The child of v with the smaller head, the left one on
+         *         ties, or -1 if both are empty.
+         */
+        private int smallerChild(int v) throws IOException {
+            int left = 2 * v;
+            int right = 2 * v + 1;
+            T a = isEmpty(left) ? null : head(left);
+            T b = isEmpty(right) ? null : head(right);
+            if (a == null) {
+                return b == null ? -1 : right;
+            }
+            if (b == null || comp.compare(a, b) <= 0) {
+                return left;
+            }
+            return right;
+        }
+
+        private boolean isEmpty(int v) {
+            if (v >= k) {
+                return pos[v - k] == end[v - k];
+            }
+            return bufCount[v] == 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T head(int v) throws IOException {
+            if (heads[v] == null) {
+                heads[v] = v >= k ? array.get(pos[v - k]) : buffers
+                        .get(bufStart[v] + bufHead[v]);
+            }
+            return (T) heads[v];
+        }
+
+        /**
+         * Removes the head of node v.
+         */
+        private T take(int v) throws IOException {
+            T x = head(v);
+            heads[v] = null;
+            if (v >= k) {
+                pos[v - k]++;
+            } else {
+                bufHead[v] = (bufHead[v] + 1) % bufSize[v];
+                bufCount[v]--;
+            }
+            return x;
+        }
+    }
+
+}
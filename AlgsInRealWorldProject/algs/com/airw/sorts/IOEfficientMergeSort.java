@@ -1,25 +1,136 @@
 package com.airw.sorts;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 
 import com.airw.arrays.EmptyCacheArray;
 import com.airw.cache.CacheArray;
 import com.airw.cache.CacheObject;
 import com.airw.cache.LRUCache;
-import com.airw.framework.CacheIntegerFactory;
-import com.airw.framework.CacheInteger;
 
 public class IOEfficientMergeSort<T extends CacheObject> extends Sort<T> {
 
 
+    // Merges of fewer records are not worth splitting between threads.
+    private static final long PARALLEL_MERGE_CUTOFF = 4096;
+
+    private boolean runFormation;
+    private int parallelism = 1;
+    private int numPasses;
+    private long blocksRead;
+    private long blocksWritten;
+
 	public IOEfficientMergeSort(CacheArray<T> array, Comparator<T> comp) {
         super(array, comp);
     }
+
+    /**
+     * Chooses between the recursive sort and an external sort that first
+     * forms sorted runs of one cache worth of records in memory and then
+     * merges K of them at a time until one run is left.
+     */
+    public void setRunFormation(boolean runFormation) {
+        this.runFormation = runFormation;
+    }
+    
+    /**
+     * Sets the number of threads that share each merge of at least
+     * PARALLEL_MERGE_CUTOFF records. More than one thread needs a
+     * thread-safe cache such as ConcurrentLRUCache.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism > 1) {
+            SortTask.checkThreadSafe(array);
+        }
+        this.parallelism = Math.max(1, parallelism);
+    }
     
 	public void sort() throws IOException {
-		mergeAux(0, array.size());
-	}	
+        LRUCache cache = array.getCache();
+        long missesBefore = cache.getMisses();
+        long writesBefore = cache.getBlocksWritten();
+        numPasses = 0;
+        if (runFormation) {
+            formRunsAndMerge();
+        } else {
+            mergeAux(0, array.size());
+        }
+        blocksRead = cache.getMisses() - missesBefore;
+        blocksWritten = cache.getBlocksWritten() - writesBefore;
+	}
+
+    /**
+     * @return Number of passes over the data made by the last run formation
+     *         sort, counting run formation as the first.
+     */
+    public int getNumPasses() {
+        return numPasses;
+    }
+
+    /**
+     * @return Number of blocks read by the last sort.
+     */
+    public long getBlocksRead() {
+        return blocksRead;
+    }
+
+    /**
+     * @return Number of blocks written back by the last sort, on evictions
+     *         and when its scratch arrays were closed. Dirty blocks of the
+     *         sorted array still in the cache afterwards are not counted.
+     */
+    public long getBlocksWritten() {
+        return blocksWritten;
+    }
+
+    private void formRunsAndMerge() throws IOException {
+        LRUCache cache = array.getCache();
+        long n = array.size();
+        long runSize = Math.max(1, cache.cacheSize());
+        long K = Math.max(2, (long) Math.ceil((double) cache.cacheSize() / (2*cache.getBlockSize())));
+
+        // Load, sort and store one cache worth of records at a time.
+        List<Long> runStarts = new ArrayList<Long>();
+        for (long from = 0; from < n; from += runSize) {
+            long to = Math.min(from + runSize, n);
+            sortInMemory(from, to);
+            runStarts.add(from);
+        }
+        numPasses = runStarts.isEmpty() ? 0 : 1;
+        if (runStarts.size() <= 1) {
+            return;
+        }
+
+        // Merge groups of K runs back and forth between array and a scratch
+        // array until a single run is left.
+        EmptyCacheArray<T> scratch = new EmptyCacheArray<T>(array.getFactory(), n, cache);
+        CacheArray<T> src = array;
+        CacheArray<T> dst = scratch;
+        while (runStarts.size() > 1) {
+            List<Long> merged = new ArrayList<Long>();
+            for (int g = 0; g < runStarts.size(); g += K) {
+                int last = (int) Math.min(g + K, runStarts.size());
+                long[] bounds = new long[last - g + 1];
+                for (int i = g; i < last; i++) {
+                    bounds[i - g] = runStarts.get(i);
+                }
+                bounds[last - g] = last < runStarts.size() ? runStarts.get(last) : n;
+                mergeRuns(src, bounds, dst, runStarts.get(g));
+                merged.add(runStarts.get(g));
+            }
+            runStarts = merged;
+            numPasses++;
+            CacheArray<T> t = src;
+            src = dst;
+            dst = t;
+        }
+        if (src == scratch) {
+            scratch.copyRange(0, array, 0, n);
+        }
+        scratch.close();
+    }
 	
     // Merges elements from lowIndex to highIndex - 1.
     public void mergeAux(long lowIndex, long highIndex) throws IOException {
@@ -28,6 +139,11 @@ public class IOEfficientMergeSort<T extends CacheObject> extends Sort<T> {
         if(numElems == 1) {
             return;
         }
+
+        if (fitsInCache(numElems)) {
+            sortInMemory(lowIndex, highIndex);
+            return;
+        }
        
         LRUCache cache = array.getCache();
         long K = (long) Math.ceil((double) cache.cacheSize() / (2*cache.getBlockSize()));
@@ -58,6 +174,8 @@ public class IOEfficientMergeSort<T extends CacheObject> extends Sort<T> {
         
         // Sort each of the sub-arrays
 
+        long[] runStarts = new long[(int) K + 1];
+        int numRuns = 0;
         long startIndex = lowIndex;
         int curSubArrayIndex = 0;
             
@@ -72,66 +190,43 @@ public class IOEfficientMergeSort<T extends CacheObject> extends Sort<T> {
             
             mergeAux(startIndex, endIndex);
             
+            runStarts[numRuns++] = startIndex;
             startIndex = endIndex;      
         	curSubArrayIndex += 1;
         }
+        runStarts[numRuns] = highIndex;
 
-        // k-way merge
+        // k-way merge through one block buffer per run and one for the output
         
         // Temp storage for merging
         EmptyCacheArray<T> mergedArray = new EmptyCacheArray<T>(array.getFactory(), numElems, cache);
-        
-        CacheIntegerFactory cif = new CacheIntegerFactory();
-        
-        // The pointer position for each of the K sub-arrays
-        EmptyCacheArray<CacheInteger> curPosition = new EmptyCacheArray<CacheInteger>(cif, K, cache);
 
-        // Start curPos pointer for each sub-array at location 0
-        for (int i = 0; i < K; i++) {
-            curPosition.set(i, new CacheInteger(0));
-        }
-        
-        long curElem = 0;
-        while(curElem < numElems) {
-            T min = null;
-            long minSubArray = -1;
-            
-            // Search for the min element
-            for (int i = 0; i < K; i++) {
-                int curPos = curPosition.get(i).valueOf();
-                
-                // If we haven't run off the end of the sub-array
-                if((i < firstLowerIndex && curPos < maxSubArraySize) ||
-                	i >= firstLowerIndex && curPos < maxSubArraySize - 1) {
-                	
-                	// What's the index of the current element in the main array?
-                	long index;
-                	
-                	if(i < firstLowerIndex) {
-                		index = lowIndex + (i * maxSubArraySize) + curPos;
-                	} else {
-                		index = lowIndex + (firstLowerIndex * maxSubArraySize) + (i-firstLowerIndex) * (maxSubArraySize - 1) + curPos;
-                	}
-
-                    if(index < array.size() && (min == null || comp.compare(array.get(index),min) < 0)) {
-                        min = array.get(index);
-                        minSubArray = i;
-                    }
-                }   
-            }
-            
-            mergedArray.set(curElem, min);         
-            curPosition.set(minSubArray, new CacheInteger(curPosition.get(minSubArray).valueOf() + 1));
-            curElem += 1;
-        }
+        long[] bounds = new long[numRuns + 1];
+        System.arraycopy(runStarts, 0, bounds, 0, numRuns + 1);
+        mergeRuns(array, bounds, mergedArray, 0);
         
         //Copy sorted array back to original location
-        for(int i = 0; i < numElems; i++) {
-            array.set(lowIndex + i, mergedArray.get(i));
-        }
+        mergedArray.copyRange(0, array, lowIndex, numElems);
         
         mergedArray.close();
-        curPosition.close();
+    }
+    
+    /**
+     * Merges the sorted runs of src delimited by bounds into dst starting at
+     * dstFrom, with several threads if the merge is large enough.
+     */
+    private void mergeRuns(CacheArray<T> src, long[] bounds, CacheArray<T> dst, long dstFrom) throws IOException {
+        int bufferRecords = (int) array.getCache().getBlockSize();
+        long numElems = bounds[bounds.length - 1] - bounds[0];
+        if (parallelism > 1 && numElems >= PARALLEL_MERGE_CUTOFF) {
+            new ParallelKWayMerge<T>(src, bounds, comp, parallelism, bufferRecords).mergeInto(dst, dstFrom);
+            return;
+        }
+        List<RunReader<T>> runs = new ArrayList<RunReader<T>>(bounds.length - 1);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            runs.add(new RunReader<T>(src, bounds[i], bounds[i + 1], bufferRecords));
+        }
+        new KWayMerge<T>(runs, comp).mergeInto(new RunWriter<T>(dst, dstFrom, bufferRecords));
     }
     
     public void quickAux(long lowIndex, long highIndex) throws IOException {
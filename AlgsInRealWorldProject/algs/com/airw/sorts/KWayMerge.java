@@ -0,0 +1,98 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.airw.cache.CacheObject;
+
+/**
+ * Merges K sorted runs with a loser tree. Internal node i of the tree holds
+ * the run that lost the match played there and node 0 holds the overall
+ * winner, so each output record costs log K comparisons and only touches
+ * the path from the winner's leaf to the root. Equal records are taken from
+ * the run with the lowest index, which keeps the merge stable.
+ *
+ * @param <T>
+ *            The record type.
+ */
+public class KWayMerge<T extends CacheObject> {
+
+    private List<RunReader<T>> runs;
+    private Comparator<T> comp;
+    private int k;
+    private int[] tree;
+
+    public KWayMerge(List<RunReader<T>> runs, Comparator<T> comp) {
+        this.runs = new ArrayList<RunReader<T>>(runs);
+        this.comp = comp;
+        this.k = this.runs.size();
+        this.tree = new int[Math.max(1, k)];
+        if (k > 0) {
+            tree[0] = k == 1 ? 0 : build(1);
+        }
+    }
+
+    /**
+     * Writes all records of all runs to out in sorted order and flushes it.
+     */
+    public void mergeInto(RunWriter<T> out) throws IOException {
+        while (k > 0 && runs.get(tree[0]).hasNext()) {
+            int winner = tree[0];
+            runs.get(winner).transferTo(out);
+            replay(winner);
+        }
+        out.flush();
+    }
+
+    /**
+     * Plays the matches of the subtree rooted at node.
+     * 
+     * @return The winner of the subtree.
+     */
+    private int build(int node) {
+        if (node >= k) {
+            return node - k;
+        }
+        int a = build(2 * node);
+        int b = build(2 * node + 1);
+        if (beats(a, b)) {
+            tree[node] = b;
+            return a;
+        }
+        tree[node] = a;
+        return b;
+    }
+
+    /**
+     * Replays the matches on the path of run s after its head changed.
+     */
+    private void replay(int s) {
+        for (int node = (s + k) / 2; node > 0; node /= 2) {
+            if (beats(tree[node], s)) {
+                int t = tree[node];
+                tree[node] = s;
+                s = t;
+            }
+        }
+        tree[0] = s;
+    }
+
+    /**
+     * An exhausted run loses to everything.
+     */
+    private boolean beats(int a, int b) {
+        T x = runs.get(a).peek();
+        T y = runs.get(b).peek();
+        if (x == null) {
+            return false;
+        }
+        if (y == null) {
+            return true;
+        }
+        int c = comp.compare(x, y);
+        return c < 0 || (c == 0 && a < b);
+    }
+
+}
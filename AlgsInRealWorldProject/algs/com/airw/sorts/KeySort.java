@@ -0,0 +1,280 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.airw.arrays.EmptyCacheArray;
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheObjectFactory;
+import com.airw.framework.IntKeyFunction;
+
+/**
+ * Stable sort by an int key extracted from every record.
+ *
+ * When the array fits in the cache the records are loaded, sorted in memory
+ * by their (key, index) pairs and stored back.
+ *
+ * Otherwise it is an LSD radix sort with 8 bit digits on the encoded
+ * records. A first read finds the bits in which the keys differ, so only
+ * the digits that vary get a pass. Each pass reads its source once and
+ * scatters the records through one block buffer per digit value, so every
+ * read and write is sequential. The first pass copies the key in front of
+ * every record and the last pass strips it again. The key function reads
+ * the keys straight from the encoded records, so no record is decoded.
+ *
+ * @param <T>
+ */
+public class KeySort<T extends CacheObject> extends Sort<T> {
+
+    private static final int KEY_BYTES = 4;
+    private static final int DIGIT_BITS = 8;
+    private static final int RADIX = 1 << DIGIT_BITS;
+
+    private IntKeyFunction<T> keyFunction;
+    private int numPasses;
+
+    public KeySort(CacheArray<T> array, IntKeyFunction<T> keyFunction) {
+        super(array, keyComparator(keyFunction));
+        this.keyFunction = keyFunction;
+    }
+
+    private static <T> Comparator<T> keyComparator(
+            final IntKeyFunction<T> keyFunction) {
+        return new Comparator<T>() {
+            public int compare(T a, T b) {
+                return Integer.compare(keyFunction.key(a), keyFunction.key(b));
+            }
+        };
+    }
+
+    public void sort() throws IOException {
+        numPasses = 0;
+        long n = array.size();
+        if (n <= 1) {
+            return;
+        }
+        if (fitsInCache(n)) {
+            sortInCache((int) n);
+            return;
+        }
+        LRUCache cache = array.getCache();
+        int bufferRecords = (int) cache.getBlockSize();
+        int width = array.getRecordWidth();
+
+        // Find the differing bits and count the first digit.
+        long[] counts = new long[RADIX];
+        int first = 0;
+        int differ = 0;
+        ByteBuffer buf = ByteBuffer.allocate(bufferRecords * width);
+        for (long from = 0; from < n; from += bufferRecords) {
+            int m = (int) Math.min(bufferRecords, n - from);
+            buf.clear();
+            array.readRange(from, m, buf);
+            for (int r = 0; r < m; r++) {
+                int u = unsignedKey(buf, r * width, false);
+                if (from == 0 && r == 0) {
+                    first = u;
+                }
+                differ |= u ^ first;
+                counts[u & (RADIX - 1)]++;
+            }
+        }
+        if (differ == 0) {
+            return;
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(differ);
+        int passes = (bits + DIGIT_BITS - 1) / DIGIT_BITS;
+
+        // A single digit needs no key in front: scatter the records and
+        // copy them back.
+        if (passes == 1) {
+            EmptyCacheArray<T> scratch = new EmptyCacheArray<T>(
+                    array.getFactory(), n, cache);
+            scatter(array, false, scratch, false, 0, counts);
+            scratch.copyRange(0, array, 0, n);
+            scratch.close();
+            return;
+        }
+        KeyedFactory<T> keyedFactory = new KeyedFactory<T>(array.getFactory());
+        EmptyCacheArray<Keyed<T>> keyed = new EmptyCacheArray<Keyed<T>>(
+                keyedFactory, n, cache);
+        EmptyCacheArray<Keyed<T>> other = passes == 2 ? null
+                : new EmptyCacheArray<Keyed<T>>(keyedFactory, n, cache);
+        counts = scatter(array, false, keyed, true, 0, counts);
+        for (int p = 1; p < passes - 1; p++) {
+            counts = scatter(keyed, true, other, true, p * DIGIT_BITS, counts);
+            EmptyCacheArray<Keyed<T>> t = keyed;
+            keyed = other;
+            other = t;
+        }
+        scatter(keyed, true, array, false, (passes - 1) * DIGIT_BITS, counts);
+        keyed.close();
+        if (other != null) {
+            other.close();
+        }
+    }
+
+    /**
+     * @return Number of scatter passes made by the last sort, 0 if it fit in
+     *         the cache.
+     */
+    public int getNumPasses() {
+        return numPasses;
+    }
+
+    /**
+     * Sorts the (key, index) pairs packed into longs, with the key in the
+     * high four bytes, so equal keys keep their index order.
+     */
+    private void sortInCache(int n) throws IOException {
+        List<T> values = load(0, n);
+        long[] pairs = new long[n];
+        for (int i = 0; i < n; i++) {
+            pairs[i] = ((long) keyFunction.key(values.get(i)) << 32) | i;
+        }
+        Arrays.sort(pairs);
+        List<T> sorted = new ArrayList<T>(n);
+        for (long p : pairs) {
+            sorted.add(values.get((int) p));
+        }
+        store(sorted, 0);
+    }
+
+    /**
+     * Stably scatters src into dst by the digit at bit shift of the keys,
+     * adding or stripping the key in front of the records on the way.
+     *
+     * @param counts
+     *            Number of records for every value of the digit.
+     * @return The counts of the next digit.
+     * @throws IOException
+     */
+    private <S extends CacheObject, D extends CacheObject> long[] scatter(
+            CacheArray<S> src, boolean srcKeyed, CacheArray<D> dst,
+            boolean dstKeyed, int shift, long[] counts) throws IOException {
+        long n = src.size();
+        int bufferRecords = (int) src.getCache().getBlockSize();
+        int srcWidth = src.getRecordWidth();
+        int nextShift = shift + DIGIT_BITS;
+
+        List<RunWriter<D>> writers = new ArrayList<RunWriter<D>>(RADIX);
+        long offset = 0;
+        for (long c : counts) {
+            writers.add(c == 0 ? null : new RunWriter<D>(dst, offset,
+                    bufferRecords));
+            offset += c;
+        }
+        long[] nextCounts = new long[RADIX];
+        ByteBuffer buf = ByteBuffer.allocate(bufferRecords * srcWidth);
+        ByteBuffer record = ByteBuffer.allocate(dst.getRecordWidth());
+        int skip = srcKeyed && !dstKeyed ? KEY_BYTES : 0;
+        for (long from = 0; from < n; from += bufferRecords) {
+            int m = (int) Math.min(bufferRecords, n - from);
+            buf.clear();
+            src.readRange(from, m, buf);
+            for (int r = 0; r < m; r++) {
+                int u = unsignedKey(buf, r * srcWidth, srcKeyed);
+                if (nextShift < 32) {
+                    nextCounts[(u >>> nextShift) & (RADIX - 1)]++;
+                }
+                RunWriter<D> w = writers.get((u >>> shift) & (RADIX - 1));
+                if (dstKeyed && !srcKeyed) {
+                    record.putInt(0, u ^ Integer.MIN_VALUE);
+                    System.arraycopy(buf.array(), r * srcWidth,
+                            record.array(), KEY_BYTES, srcWidth);
+                    w.writeEncoded(record, 0);
+                } else {
+                    w.writeEncoded(buf, r * srcWidth + skip);
+                }
+            }
+        }
+        for (RunWriter<D> w : writers) {
+            if (w != null) {
+                w.flush();
+            }
+        }
+        numPasses++;
+        return nextCounts;
+    }
+
+    /**
+     * The key of the record at offset with its sign bit flipped, so that
+     * unsigned order is signed key order.
+     */
+    private int unsignedKey(ByteBuffer buf, int offset, boolean keyed) {
+        int key = keyed ? buf.getInt(offset) : keyFunction.key(buf, offset);
+        return key ^ Integer.MIN_VALUE;
+    }
+
+    /**
+     * A record with its key, encoded as the big-endian key followed by the
+     * record.
+     */
+    private static class Keyed<T extends CacheObject> extends CacheObject {
+
+        private int key;
+        private T value;
+
+        Keyed(int key, T value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String myToString() {
+            return key + " " + value.myToString();
+        }
+
+        @Override
+        public void write(ByteBuffer buf, int offset) {
+            buf.putInt(offset, key);
+            value.write(buf, offset + KEY_BYTES);
+        }
+
+    }
+
+    private static class KeyedFactory<T extends CacheObject> implements
+            CacheObjectFactory<Keyed<T>> {
+
+        private CacheObjectFactory<T> factory;
+
+        KeyedFactory(CacheObjectFactory<T> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public Keyed<T> createCacheObject(String s) {
+            int space = s.indexOf(' ');
+            return new Keyed<T>(Integer.parseInt(s.substring(0, space)),
+                    factory.createCacheObject(s.substring(space + 1)));
+        }
+
+        @Override
+        public Keyed<T> createCacheObject(ByteBuffer buf, int offset) {
+            return new Keyed<T>(buf.getInt(offset), factory.createCacheObject(
+                    buf, offset + KEY_BYTES));
+        }
+
+        @Override
+        public Comparator<Keyed<T>> getBasicComparator() {
+            return new Comparator<Keyed<T>>() {
+                public int compare(Keyed<T> a, Keyed<T> b) {
+                    return Integer.compare(a.key, b.key);
+                }
+            };
+        }
+
+        @Override
+        public int getRecordWidth() {
+            return KEY_BYTES + factory.getRecordWidth();
+        }
+
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+
+/**
+ * Merges K sorted runs with several threads. P - 1 splitters are picked from
+ * an evenly spaced sample of every run and each run is cut at the first
+ * record greater than each splitter, found by binary search. That cuts the
+ * output into P slices that do not overlap, and every slice is merged on
+ * its own thread by a KWayMerge. Records equal to a splitter all go to the
+ * slice before it, so the merge stays stable.
+ * 
+ * The arrays must live in a thread-safe cache such as ConcurrentLRUCache.
+ *
+ * @param <T>
+ *            The record type.
+ */
+public class ParallelKWayMerge<T extends CacheObject> {
+
+    private CacheArray<T> src;
+    private long[] bounds;
+    private Comparator<T> comp;
+    private int parallelism;
+    private int bufferRecords;
+
+    /**
+     * @param bounds
+     *            Start of every run in src followed by the end of the last
+     *            run, so run i is bounds[i] to bounds[i + 1] - 1.
+     * @param parallelism
+     *            Number of slices merged at once.
+     * @param bufferRecords
+     *            Records buffered per run and for the output, normally a
+     *            block.
+     */
+    public ParallelKWayMerge(CacheArray<T> src, long[] bounds,
+            Comparator<T> comp, int parallelism, int bufferRecords) {
+        SortTask.checkThreadSafe(src);
+        this.src = src;
+        this.bounds = bounds;
+        this.comp = comp;
+        this.parallelism = Math.max(1, parallelism);
+        this.bufferRecords = bufferRecords;
+    }
+
+    /**
+     * Writes the merged runs to dst starting at index dstFrom.
+     */
+    public void mergeInto(final CacheArray<T> dst, final long dstFrom)
+            throws IOException {
+        final int k = bounds.length - 1;
+        List<T> splitters = pickSplitters(k);
+        final int numSlices = splitters.size() + 1;
+
+        // cuts[s][i] is where slice s starts in run i.
+        final long[][] cuts = new long[numSlices + 1][k];
+        for (int i = 0; i < k; i++) {
+            cuts[0][i] = bounds[i];
+            cuts[numSlices][i] = bounds[i + 1];
+            for (int s = 1; s < numSlices; s++) {
+                cuts[s][i] = upperBound(splitters.get(s - 1),
+                        cuts[s - 1][i], bounds[i + 1]);
+            }
+        }
+
+        final List<RecursiveAction> slices = new ArrayList<RecursiveAction>();
+        long out = dstFrom;
+        for (int s = 0; s < numSlices; s++) {
+            final int slice = s;
+            final long sliceOut = out;
+            for (int i = 0; i < k; i++) {
+                out += cuts[s + 1][i] - cuts[s][i];
+            }
+            slices.add(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    try {
+                        List<RunReader<T>> runs = new ArrayList<RunReader<T>>(
+                                k);
+                        for (int i = 0; i < k; i++) {
+                            runs.add(new RunReader<T>(src, cuts[slice][i],
+                                    cuts[slice + 1][i], bufferRecords));
+                        }
+                        new KWayMerge<T>(runs, comp)
+                                .mergeInto(new RunWriter<T>(dst, sliceOut,
+                                        bufferRecords));
+                    } catch (IOException e) {
+                        throw new SortTask.IOFailure(e);
+                    }
+                }
+            });
+        }
+
+        SortTask.run(parallelism, new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                invokeAll(slices);
+            }
+        });
+    }
+
+    /**
+     * Samples parallelism records from every run and returns every
+     * parallelism-th of the sorted sample.
+     */
+    private List<T> pickSplitters(int k) throws IOException {
+        List<T> sample = new ArrayList<T>(k * parallelism);
+        for (int i = 0; i < k; i++) {
+            long length = bounds[i + 1] - bounds[i];
+            for (int j = 1; j <= parallelism && length > 0; j++) {
+                sample.add(src.get(bounds[i] + (length * j - 1) / (parallelism + 1)));
+            }
+        }
+        Collections.sort(sample, comp);
+
+        List<T> splitters = new ArrayList<T>(parallelism - 1);
+        for (int s = 1; s < parallelism && !sample.isEmpty(); s++) {
+            splitters.add(sample.get(s * sample.size() / parallelism));
+        }
+        return splitters;
+    }
+
+    /**
+     * @return The first index in from to to - 1 whose record is greater than
+     *         v, or to if there is none.
+     */
+    private long upperBound(T v, long from, long to) throws IOException {
+        long lo = from;
+        long hi = to;
+        while (lo < hi) {
+            long mid = lo + (hi - lo) / 2;
+            if (comp.compare(src.get(mid), v) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+}
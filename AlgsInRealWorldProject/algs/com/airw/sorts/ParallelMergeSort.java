@@ -0,0 +1,84 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.concurrent.RecursiveAction;
+
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+
+/**
+ * MergeSort that sorts both halves of each range as parallel tasks on a
+ * ForkJoinPool before merging them. Ranges that fit in the cache are sorted
+ * in memory and ranges shorter than the cutoff are sorted sequentially. The
+ * array must live in a thread-safe cache such as ConcurrentLRUCache.
+ * 
+ * @param <T>
+ */
+public class ParallelMergeSort<T extends CacheObject> extends MergeSort<T> {
+
+    public static final long DEFAULT_CUTOFF = 4096;
+
+    private int parallelism;
+    private long cutoff;
+
+    public ParallelMergeSort(CacheArray<T> array, Comparator<T> comp) {
+        this(array, comp, Runtime.getRuntime().availableProcessors(),
+                DEFAULT_CUTOFF);
+    }
+
+    /**
+     * @param parallelism
+     *            Number of worker threads.
+     * @param cutoff
+     *            Ranges with fewer items are not split further.
+     */
+    public ParallelMergeSort(CacheArray<T> array, Comparator<T> comp,
+            int parallelism, long cutoff) {
+        super(array, comp);
+        SortTask.checkThreadSafe(array);
+        this.parallelism = Math.max(1, parallelism);
+        this.cutoff = Math.max(2, cutoff);
+    }
+
+    @Override
+    public void sort() throws IOException {
+        SortTask.run(parallelism, new MergeTask(0, array.size()));
+    }
+
+    private class MergeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private long lowIndex;
+        private long highIndex;
+
+        MergeTask(long lowIndex, long highIndex) {
+            this.lowIndex = lowIndex;
+            this.highIndex = highIndex;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                long numElems = highIndex - lowIndex;
+                // The whole range fits in the cache, sort it there in one pass.
+                if (numElems > 1 && fitsInCache(numElems)) {
+                    sortInMemory(lowIndex, highIndex);
+                    return;
+                }
+                if (numElems < cutoff) {
+                    mergeAux(lowIndex, highIndex);
+                    return;
+                }
+                long midIndex = lowIndex + (numElems + 1) / 2;
+                invokeAll(new MergeTask(lowIndex, midIndex), new MergeTask(
+                        midIndex, highIndex));
+                merge(lowIndex, midIndex, highIndex);
+            } catch (IOException e) {
+                throw new SortTask.IOFailure(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+
+/**
+ * QuickSort that sorts the two sides of each partition as parallel tasks on
+ * a ForkJoinPool. Ranges that fit in the cache are sorted in memory and
+ * ranges shorter than the cutoff are sorted sequentially.
+ * The array must live in a thread-safe cache such as ConcurrentLRUCache.
+ * 
+ * In introsort mode every task partitions three ways around a ninther pivot
+ * and the depth limit is carried down the task tree, so a task that runs out
+ * of depth heapsorts its range. In multiway mode every distribution pass is
+ * made by one task and the buckets are then sorted as parallel tasks.
+ * 
+ * @param <T>
+ */
+public class ParallelQuickSort<T extends CacheObject> extends QuickSort<T> {
+
+    public static final long DEFAULT_CUTOFF = 4096;
+
+    private int parallelism;
+    private long cutoff;
+
+    public ParallelQuickSort(CacheArray<T> array, Comparator<T> comp) {
+        this(array, comp, Runtime.getRuntime().availableProcessors(),
+                DEFAULT_CUTOFF);
+    }
+
+    /**
+     * @param parallelism
+     *            Number of worker threads.
+     * @param cutoff
+     *            Ranges with fewer items are not split further.
+     */
+    public ParallelQuickSort(CacheArray<T> array, Comparator<T> comp,
+            int parallelism, long cutoff) {
+        super(array, comp);
+        SortTask.checkThreadSafe(array);
+        this.parallelism = Math.max(1, parallelism);
+        this.cutoff = Math.max(2, cutoff);
+    }
+
+    @Override
+    public void sort() throws IOException {
+        if (isMultiway()) {
+            SortTask.run(parallelism, new MultiwayTask(array, 0, 0,
+                    array.size()));
+        } else {
+            SortTask.run(parallelism, new QuickTask(0, array.size() - 1,
+                    introDepthLimit(array.size())));
+        }
+    }
+
+    private class QuickTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private long lowIndex;
+        private long highIndex;
+        private int depthLimit; // Only used in introsort mode.
+
+        QuickTask(long lowIndex, long highIndex, int depthLimit) {
+            this.lowIndex = lowIndex;
+            this.highIndex = highIndex;
+            this.depthLimit = depthLimit;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                // The whole range fits in the cache, sort it there in one pass.
+                long numElems = highIndex - lowIndex + 1;
+                if (numElems > 1 && fitsInCache(numElems)) {
+                    sortInMemory(lowIndex, highIndex + 1);
+                    return;
+                }
+                if (isIntrosort()) {
+                    computeIntro();
+                    return;
+                }
+                if (highIndex - lowIndex < cutoff) {
+                    quickAux(lowIndex, highIndex);
+                    return;
+                }
+                long i = partition(lowIndex, highIndex);
+                invokeAll(new QuickTask(lowIndex, i - 1, depthLimit),
+                        new QuickTask(i + 1, highIndex, depthLimit));
+            } catch (IOException e) {
+                throw new SortTask.IOFailure(e);
+            }
+        }
+
+        private void computeIntro() throws IOException {
+            if (highIndex - lowIndex < cutoff) {
+                introAux(lowIndex, highIndex, depthLimit);
+            } else if (depthLimit == 0) {
+                heapSort(lowIndex, highIndex);
+            } else {
+                long[] equal = partitionThreeWay(lowIndex, highIndex);
+                invokeAll(new QuickTask(lowIndex, equal[0] - 1, depthLimit - 1),
+                        new QuickTask(equal[1] + 1, highIndex, depthLimit - 1));
+            }
+        }
+    }
+
+    /**
+     * Sorts numElems items of src starting at srcFrom into the array
+     * starting at dstFrom, as QuickSort.multiwayAux does.
+     */
+    private class MultiwayTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private CacheArray<T> src;
+        private long srcFrom;
+        private long dstFrom;
+        private long numElems;
+
+        MultiwayTask(CacheArray<T> src, long srcFrom, long dstFrom,
+                long numElems) {
+            this.src = src;
+            this.srcFrom = srcFrom;
+            this.dstFrom = dstFrom;
+            this.numElems = numElems;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (fitsInCache(numElems)) {
+                    sortInMemory(src, srcFrom, dstFrom, numElems);
+                    return;
+                }
+                Distribution<T> d = distribute(src, srcFrom, numElems);
+                List<MultiwayTask> tasks = new ArrayList<MultiwayTask>();
+                for (int b = 0; b < d.numBuckets(); b++) {
+                    long start = d.bucketStart(b);
+                    if (Distribution.holdsEqualKeys(b)) {
+                        d.getScratch().copyRange(start, array,
+                                dstFrom + start, d.bucketSize(b));
+                    } else {
+                        tasks.add(new MultiwayTask(d.getScratch(), start,
+                                dstFrom + start, d.bucketSize(b)));
+                    }
+                }
+                invokeAll(tasks);
+                d.close();
+            } catch (IOException e) {
+                throw new SortTask.IOFailure(e);
+            }
+        }
+    }
+
+}
@@ -1,100 +1,387 @@
-package com.airw.sorts;
-
-import java.io.IOException;
-import java.util.Comparator;
-
-import com.airw.cache.CacheArray;
-import com.airw.cache.CacheObject;
-
-/**
- * Quick sort so taking into account cache efficiency.
- * 
- * @param <T>
- * 
- * @param <T>
- */
-public class QuickSort<T extends CacheObject> extends Sort<T> {
-
-    public QuickSort(CacheArray<T> array, Comparator<T> comp) {
-        super(array, comp);
-    }
-
-    public void sort() throws IOException {
-        quickAux(0, array.size() - 1);
-    }
-
-    public void quickAux(long lowIndex, long highIndex) throws IOException {
-
-//        System.out.println(((double) lowIndex) / array.size());
-
-        // at least one item must exist in the array
-        if (lowIndex >= highIndex) {
-            return;
-        }
-
-        long pivotIndex = getMedianIndexAsPivotIndex(lowIndex, highIndex);
-        // 1) Choose pivot from the sublist
-        T pivot = array.get(pivotIndex);
-        // 2) Swap the pivot to the last item in the array
-        swapItemsWithIndices(pivotIndex, highIndex);
-
-        /*
-         * Get the border indices sandwiching the unsorted items alone (ignore
-         * pivot (now, in the highIndex)) set 'i' to point to the item before
-         * the first Index set 'j' to point to the item before pivot
-         * 
-         * Notice that this way, the following invariant gets maintained all
-         * through the sorting procedure
-         * 
-         * a. All items left of Index 'i' have a value <=pivot b. All items
-         * right of Index 'j' have a value >=pivot
-         */
-
-        long i = lowIndex - 1;
-        long j = highIndex;
-
-        do { // Notice the <j (pivot item is ignored). We stop when both the
-             // counters cross
-
-            // compareTo will return 0 when it reaches the pivot - will exit
-            // loop
-            do {
-                i++;
-            } while (comp.compare(array.get(i), pivot) < 0);
-            // we dont have the protection as the previous loop.
-            // So, add extra condition to prevent 'j' from overflowing outside
-            // the current sub array
-            do {
-                j--;
-            } while (comp.compare(array.get(j), pivot) > 0 && (j > lowIndex));
-
-            if (i < j) {
-                swapItemsWithIndices(i, j);
-            }
-        } while (i < j);
-
-        swapItemsWithIndices(highIndex, i);// bring pivot to i's position
-
-        // the big subarray is partially sorted (agrees to invariant). Let's
-        // recurse and bring in more hands
-
-        quickAux(lowIndex, i - 1); // sort subarray between low index and one
-                                   // before the pivot
-        quickAux(i + 1, highIndex); // sort subarray between low index and one
-                                    // before the pivot
-    }
-
-    // ... since swapping with array is the easiest way to swap two objects
-    private void swapItemsWithIndices(long firstItem, long secondItem)
-            throws IOException {
-        final T tempItem = array.get(firstItem);
-        array.set(firstItem, array.get(secondItem));
-        array.set(secondItem, tempItem);
-    }
-
-    // Variation 1 - chose median as pivot
-    private long getMedianIndexAsPivotIndex(long lowIndex, long highIndex) {
-        return lowIndex + ((highIndex - lowIndex) / 2);
-    }
-
-}
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+import com.airw.cache.LRUCache;
+
+/**
+ * Quick sort so taking into account cache efficiency.
+ * 
+ * @param <T>
+ * 
+ * @param <T>
+ */
+public class QuickSort<T extends CacheObject> extends Sort<T> {
+
+    // Ranges below this size are never split further in introsort mode.
+    private static final int MIN_INSERTION_CUTOFF = 16;
+
+    // Evenly spaced sample items taken per pivot in multiway mode.
+    private static final int OVERSAMPLING = 8;
+
+    private boolean introsort;
+    private boolean multiway;
+
+    public QuickSort(CacheArray<T> array, Comparator<T> comp) {
+        super(array, comp);
+    }
+
+    /**
+     * Switches to introsort: ninther pivots, three-way partitioning so runs
+     * of equal items are settled in one pass, insertion sort in memory for
+     * ranges of up to a block, and heapsort once the recursion gets deeper
+     * than 2 log2 n.
+     */
+    public void setIntrosort(boolean introsort) {
+        this.introsort = introsort;
+    }
+
+    /**
+     * Switches to multiway partitioning: ranges larger than the cache are
+     * split around about M/2B pivots in one pass instead of one, so the sort
+     * needs about log_{M/B}(N/M) passes over the data instead of log2(N/M).
+     */
+    public void setMultiway(boolean multiway) {
+        this.multiway = multiway;
+    }
+
+    public void sort() throws IOException {
+        if (multiway) {
+            multiwayAux(array, 0, 0, array.size());
+        } else if (introsort) {
+            introAux(0, array.size() - 1, introDepthLimit(array.size()));
+        } else {
+            quickAux(0, array.size() - 1);
+        }
+    }
+
+    public void quickAux(long lowIndex, long highIndex) throws IOException {
+
+//        System.out.println(((double) lowIndex) / array.size());
+
+        // at least one item must exist in the array
+        if (lowIndex >= highIndex) {
+            return;
+        }
+
+        // The whole range fits in the cache, sort it there in one pass.
+        if (fitsInCache(highIndex - lowIndex + 1)) {
+            sortInMemory(lowIndex, highIndex + 1);
+            return;
+        }
+
+        long i = partition(lowIndex, highIndex);
+
+        // the big subarray is partially sorted (agrees to invariant). Let's
+        // recurse and bring in more hands
+
+        quickAux(lowIndex, i - 1); // sort subarray between low index and one
+                                   // before the pivot
+        quickAux(i + 1, highIndex); // sort subarray between low index and one
+                                    // before the pivot
+    }
+
+    /**
+     * Partitions the items from lowIndex to highIndex, inclusive, around the
+     * middle item.
+     * 
+     * @return The final index of the pivot. Items before it are <= pivot and
+     *         items after it are >= pivot.
+     * @throws IOException
+     */
+    protected long partition(long lowIndex, long highIndex) throws IOException {
+        long pivotIndex = getMedianIndexAsPivotIndex(lowIndex, highIndex);
+        // 1) Choose pivot from the sublist
+        T pivot = array.get(pivotIndex);
+        // 2) Swap the pivot to the last item in the array
+        swapItemsWithIndices(pivotIndex, highIndex);
+
+        /*
+         * Get the border indices sandwiching the unsorted items alone (ignore
+         * pivot (now, in the highIndex)) set 'i' to point to the item before
+         * the first Index set 'j' to point to the item before pivot
+         * 
+         * Notice that this way, the following invariant gets maintained all
+         * through the sorting procedure
+         * 
+         * a. All items left of Index 'i' have a value <=pivot b. All items
+         * right of Index 'j' have a value >=pivot
+         */
+
+        long i = lowIndex - 1;
+        long j = highIndex;
+
+        do { // Notice the <j (pivot item is ignored). We stop when both the
+             // counters cross
+
+            // compareTo will return 0 when it reaches the pivot - will exit
+            // loop
+            do {
+                i++;
+            } while (comp.compare(array.get(i), pivot) < 0);
+            // we dont have the protection as the previous loop.
+            // So, add extra condition to prevent 'j' from overflowing outside
+            // the current sub array
+            do {
+                j--;
+            } while (comp.compare(array.get(j), pivot) > 0 && (j > lowIndex));
+
+            if (i < j) {
+                swapItemsWithIndices(i, j);
+            }
+        } while (i < j);
+
+        swapItemsWithIndices(highIndex, i);// bring pivot to i's position
+        return i;
+    }
+
+    /**
+     * Multiway quick sort of numElems items of src starting at srcFrom into
+     * the array starting at dstFrom. src is either the array itself, with
+     * srcFrom == dstFrom, or the scratch array of the level above.
+     * 
+     * A Distribution scatters the items into their buckets in a new scratch
+     * array. Buckets of items equal to a pivot are then copied to the array,
+     * the others are sorted the same way from the scratch array into the
+     * array, so no pass is spent copying a level back.
+     */
+    private void multiwayAux(CacheArray<T> src, long srcFrom, long dstFrom,
+            long numElems) throws IOException {
+        if (fitsInCache(numElems)) {
+            sortInMemory(src, srcFrom, dstFrom, numElems);
+            return;
+        }
+
+        Distribution<T> d = distribute(src, srcFrom, numElems);
+        for (int b = 0; b < d.numBuckets(); b++) {
+            long start = d.bucketStart(b);
+            if (Distribution.holdsEqualKeys(b)) {
+                d.getScratch().copyRange(start, array, dstFrom + start,
+                        d.bucketSize(b));
+            } else {
+                multiwayAux(d.getScratch(), start, dstFrom + start,
+                        d.bucketSize(b));
+            }
+        }
+        d.close();
+    }
+
+    /**
+     * Sorts numElems items of src starting at srcFrom in memory and writes
+     * them to the array starting at dstFrom.
+     * 
+     * @throws IOException
+     */
+    protected void sortInMemory(CacheArray<T> src, long srcFrom, long dstFrom,
+            long numElems) throws IOException {
+        List<T> values = load(src, srcFrom, srcFrom + numElems);
+        Collections.sort(values, comp);
+        store(values, dstFrom);
+    }
+
+    /**
+     * Splits numElems items of src starting at srcFrom around pivots taken
+     * from evenly spaced items. Same fan-out as IOEfficientMergeSort, one
+     * block buffer per bucket and one for the input, where every pivot adds
+     * two buckets, one for the items equal to it.
+     */
+    Distribution<T> distribute(CacheArray<T> src, long srcFrom, long numElems)
+            throws IOException {
+        LRUCache cache = array.getCache();
+        long K = Math.max(2, cache.cacheSize() / (2 * cache.getBlockSize()));
+        int k = (int) (K / 2 + 1);
+        int sampleSize = (int) Math.min(numElems, (long) k * OVERSAMPLING);
+        List<T> sample = new ArrayList<T>(sampleSize);
+        for (int i = 0; i < sampleSize; i++) {
+            sample.add(src.get(srcFrom + i * numElems / sampleSize));
+        }
+        return new Distribution<T>(src, srcFrom, srcFrom + numElems,
+                Distribution.splitters(sample, k, comp), comp,
+                (int) cache.getBlockSize());
+    }
+
+    /**
+     * @return Whether sort() runs multiway quick sort.
+     */
+    protected boolean isMultiway() {
+        return multiway;
+    }
+
+    /**
+     * Introsort of the items from lowIndex to highIndex, inclusive. Recurses
+     * into the smaller side and loops on the larger one, so the stack stays
+     * logarithmic.
+     */
+    protected void introAux(long lowIndex, long highIndex, int depthLimit)
+            throws IOException {
+        long cutoff = Math.max(MIN_INSERTION_CUTOFF, array.getCache().getBlockSize());
+        while (highIndex - lowIndex + 1 > cutoff) {
+            if (depthLimit == 0) {
+                heapSort(lowIndex, highIndex);
+                return;
+            }
+            depthLimit--;
+
+            long[] equal = partitionThreeWay(lowIndex, highIndex);
+            long lt = equal[0];
+            long gt = equal[1];
+            if (lt - lowIndex < highIndex - gt) {
+                introAux(lowIndex, lt - 1, depthLimit);
+                lowIndex = gt + 1;
+            } else {
+                introAux(gt + 1, highIndex, depthLimit);
+                highIndex = lt - 1;
+            }
+        }
+        insertionSort(lowIndex, highIndex);
+    }
+
+    /**
+     * @return Whether sort() runs introsort.
+     */
+    protected boolean isIntrosort() {
+        return introsort;
+    }
+
+    /**
+     * @return The introsort depth limit for n items, 2 log2 n.
+     */
+    protected static int introDepthLimit(long n) {
+        return 2 * (64 - Long.numberOfLeadingZeros(Math.max(1, n)));
+    }
+
+    /**
+     * Partitions the items from lowIndex to highIndex, inclusive, three ways
+     * around a ninther pivot.
+     * 
+     * @return {lt, gt}: items before lt are < pivot, items from lt to gt are
+     *         equal to it and items after gt are > pivot.
+     * @throws IOException
+     */
+    protected long[] partitionThreeWay(long lowIndex, long highIndex)
+            throws IOException {
+        T pivot = array.get(nintherIndex(lowIndex, highIndex));
+
+        // Dutch flag: [lowIndex, lt) < pivot, [lt, i) == pivot and
+        // (gt, highIndex] > pivot.
+        long lt = lowIndex;
+        long i = lowIndex;
+        long gt = highIndex;
+        while (i <= gt) {
+            int c = comp.compare(array.get(i), pivot);
+            if (c < 0) {
+                swapItemsWithIndices(lt++, i++);
+            } else if (c > 0) {
+                swapItemsWithIndices(i, gt--);
+            } else {
+                i++;
+            }
+        }
+        return new long[] { lt, gt };
+    }
+
+    /**
+     * Sorts a range of at most a block or so in memory and writes it back.
+     */
+    private void insertionSort(long lowIndex, long highIndex) throws IOException {
+        if (lowIndex >= highIndex) {
+            return;
+        }
+        List<T> values = load(lowIndex, highIndex + 1);
+        for (int i = 1; i < values.size(); i++) {
+            T v = values.get(i);
+            int j = i - 1;
+            while (j >= 0 && comp.compare(values.get(j), v) > 0) {
+                values.set(j + 1, values.get(j));
+                j--;
+            }
+            values.set(j + 1, v);
+        }
+        store(values, lowIndex);
+    }
+
+    /**
+     * Heapsort of the items from lowIndex to highIndex, inclusive, used once
+     * introsort runs out of depth.
+     */
+    protected void heapSort(long lowIndex, long highIndex) throws IOException {
+        long n = highIndex - lowIndex + 1;
+        for (long i = n / 2 - 1; i >= 0; i--) {
+            siftDown(lowIndex, i, n);
+        }
+        for (long last = n - 1; last > 0; last--) {
+            swapItemsWithIndices(lowIndex, lowIndex + last);
+            siftDown(lowIndex, 0, last);
+        }
+    }
+
+    private void siftDown(long base, long i, long n) throws IOException {
+        T v = array.get(base + i);
+        while (2 * i + 1 < n) {
+            long child = 2 * i + 1;
+            T c = array.get(base + child);
+            if (child + 1 < n) {
+                T right = array.get(base + child + 1);
+                if (comp.compare(right, c) > 0) {
+                    child++;
+                    c = right;
+                }
+            }
+            if (comp.compare(c, v) <= 0) {
+                break;
+            }
+            array.set(base + i, c);
+            i = child;
+        }
+        array.set(base + i, v);
+    }
+
+    /**
+     * Tukey's ninther: the median of the medians of three groups of three
+     * items spread over the range.
+     */
+    private long nintherIndex(long lowIndex, long highIndex) throws IOException {
+        long step = (highIndex - lowIndex) / 8;
+        long mid = lowIndex + (highIndex - lowIndex) / 2;
+        return medianOfThree(
+                medianOfThree(lowIndex, lowIndex + step, lowIndex + 2 * step),
+                medianOfThree(mid - step, mid, mid + step),
+                medianOfThree(highIndex - 2 * step, highIndex - step, highIndex));
+    }
+
+    private long medianOfThree(long a, long b, long c) throws IOException {
+        T x = array.get(a);
+        T y = array.get(b);
+        T z = array.get(c);
+        if (comp.compare(x, y) < 0) {
+            if (comp.compare(y, z) < 0) {
+                return b;
+            }
+            return comp.compare(x, z) < 0 ? c : a;
+        }
+        if (comp.compare(x, z) < 0) {
+            return a;
+        }
+        return comp.compare(y, z) < 0 ? c : b;
+    }
+
+    // ... since swapping with array is the easiest way to swap two objects
+    private void swapItemsWithIndices(long firstItem, long secondItem)
+            throws IOException {
+        final T tempItem = array.get(firstItem);
+        array.set(firstItem, array.get(secondItem));
+        array.set(secondItem, tempItem);
+    }
+
+    // Variation 1 - chose median as pivot
+    private long getMedianIndexAsPivotIndex(long lowIndex, long highIndex) {
+        return lowIndex + ((highIndex - lowIndex) / 2);
+    }
+
+}
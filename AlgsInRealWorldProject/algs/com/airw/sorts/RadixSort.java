@@ -0,0 +1,163 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.airw.arrays.EmptyCacheArray;
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheIntegerFactory;
+import com.airw.framework.CacheLongFactory;
+import com.airw.framework.CacheObjectFactory;
+
+/**
+ * LSD radix sort with 8 bit digits for arrays of CacheInteger or CacheLong
+ * records, including IntCacheArray and LongCacheArray. It works on the
+ * encoded big-endian records and never decodes them.
+ * 
+ * One read computes the histograms of all digits. Each pass then reads the
+ * source once and scatters the records into a scratch array through one
+ * block buffer per digit value. The two arrays swap roles after every pass.
+ * A pass whose digit is the same for every record is skipped. Every pass is
+ * stable, so the sort is too.
+ * 
+ * @param <T>
+ */
+public class RadixSort<T extends CacheObject> extends Sort<T> {
+
+    private static final int RADIX = 256;
+
+    private int width;
+    private int keyBytes;
+    private int numPasses;
+
+    public RadixSort(CacheArray<T> array) {
+        this(array, array.getRecordWidth());
+    }
+
+    /**
+     * Sorts by the first keyBytes bytes of every record only. Records with
+     * the same key keep their order.
+     * 
+     * @param keyBytes
+     *            Number of leading, most significant, bytes forming the key.
+     */
+    public RadixSort(CacheArray<T> array, int keyBytes) {
+        super(array, integerComparator(array));
+        this.width = array.getRecordWidth();
+        if (keyBytes < 1 || keyBytes > width) {
+            throw new IllegalArgumentException("Key of " + keyBytes
+                    + " bytes does not fit a " + width + " byte record.");
+        }
+        this.keyBytes = keyBytes;
+    }
+
+    private static <T extends CacheObject> Comparator<T> integerComparator(
+            CacheArray<T> array) {
+        CacheObjectFactory<T> factory = array.getFactory();
+        if (!(factory instanceof CacheIntegerFactory)
+                && !(factory instanceof CacheLongFactory)) {
+            throw new IllegalArgumentException(
+                    "RadixSort needs CacheInteger or CacheLong records.");
+        }
+        return factory.getBasicComparator();
+    }
+
+    public void sort() throws IOException {
+        numPasses = 0;
+        long n = array.size();
+        if (n <= 1) {
+            return;
+        }
+        LRUCache cache = array.getCache();
+        int bufferRecords = (int) cache.getBlockSize();
+        ByteBuffer buf = ByteBuffer.allocate(bufferRecords * width);
+
+        long[][] counts = new long[keyBytes][RADIX];
+        for (long from = 0; from < n; from += bufferRecords) {
+            int m = (int) Math.min(bufferRecords, n - from);
+            buf.clear();
+            array.readRange(from, m, buf);
+            for (int r = 0; r < m; r++) {
+                for (int d = 0; d < keyBytes; d++) {
+                    counts[d][digit(buf, r * width, d)]++;
+                }
+            }
+        }
+
+        EmptyCacheArray<T> scratch = new EmptyCacheArray<T>(
+                array.getFactory(), n, cache);
+        CacheArray<T> src = array;
+        CacheArray<T> dst = scratch;
+        for (int d = 0; d < keyBytes; d++) {
+            if (isConstant(counts[d], n)) {
+                continue;
+            }
+
+            List<RunWriter<T>> writers = new ArrayList<RunWriter<T>>(RADIX);
+            long offset = 0;
+            for (int v = 0; v < RADIX; v++) {
+                writers.add(counts[d][v] == 0 ? null : new RunWriter<T>(dst,
+                        offset, bufferRecords));
+                offset += counts[d][v];
+            }
+            for (long from = 0; from < n; from += bufferRecords) {
+                int m = (int) Math.min(bufferRecords, n - from);
+                buf.clear();
+                src.readRange(from, m, buf);
+                for (int r = 0; r < m; r++) {
+                    writers.get(digit(buf, r * width, d)).writeEncoded(buf, r
+                            * width);
+                }
+            }
+            for (RunWriter<T> w : writers) {
+                if (w != null) {
+                    w.flush();
+                }
+            }
+
+            CacheArray<T> t = src;
+            src = dst;
+            dst = t;
+            numPasses++;
+        }
+        if (src != array) {
+            src.copyRange(0, array, 0, n);
+        }
+        scratch.close();
+    }
+
+    /**
+     * @return Number of scatter passes made by the last sort.
+     */
+    public int getNumPasses() {
+        return numPasses;
+    }
+
+    /**
+     * Digit d counts from the least significant byte of the key. The most
+     * significant digit has its sign bit flipped so negative keys come
+     * first.
+     */
+    private int digit(ByteBuffer buf, int offset, int d) {
+        int b = buf.get(offset + keyBytes - 1 - d) & 0xFF;
+        return d == keyBytes - 1 ? b ^ 0x80 : b;
+    }
+
+    private static boolean isConstant(long[] counts, long n) {
+        for (long c : counts) {
+            if (c == n) {
+                return true;
+            }
+            if (c != 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+
+/**
+ * Reads a sorted run of a CacheArray front to back through an in-memory
+ * buffer that is refilled a block at a time with readRange.
+ *
+ * @param <T>
+ *            The record type.
+ */
+public class RunReader<T extends CacheObject> {
+
+    private CacheArray<T> array;
+    private long next; // Next index to buffer.
+    private long end;
+    private ByteBuffer buffer;
+    private int width;
+    private int bufferRecords;
+    private int buffered;
+    private int position; // Record in buffer that head was decoded from.
+    private T head;
+
+    /**
+     * @param from
+     *            Index of the first record of the run.
+     * @param to
+     *            Index one past the last record of the run.
+     * @param bufferRecords
+     *            Number of records buffered at a time, normally a block.
+     */
+    public RunReader(CacheArray<T> array, long from, long to,
+            int bufferRecords) throws IOException {
+        this.array = array;
+        this.next = from;
+        this.end = to;
+        this.width = array.getRecordWidth();
+        this.bufferRecords = Math.max(1, bufferRecords);
+        this.buffer = ByteBuffer.allocate(this.bufferRecords * width);
+        this.buffered = 0;
+        this.position = -1;
+        advance();
+    }
+
+    public boolean hasNext() {
+        return head != null;
+    }
+
+    /**
+     * @return The next record of the run without consuming it, or null once
+     *         the run is exhausted.
+     */
+    public T peek() {
+        return head;
+    }
+
+    /**
+     * Consumes the next record.
+     */
+    public T next() throws IOException {
+        T v = head;
+        advance();
+        return v;
+    }
+
+    /**
+     * Consumes the next record and hands it to out still encoded.
+     */
+    public void transferTo(RunWriter<T> out) throws IOException {
+        out.writeEncoded(buffer, position * width);
+        advance();
+    }
+
+    private void advance() throws IOException {
+        position++;
+        if (position == buffered) {
+            if (next == end) {
+                head = null;
+                return;
+            }
+            buffered = (int) Math.min(bufferRecords, end - next);
+            buffer.clear();
+            array.readRange(next, buffered, buffer);
+            next += buffered;
+            position = 0;
+        }
+        head = array.getFactory().createCacheObject(buffer, position * width);
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+
+/**
+ * Appends records to a CacheArray through an in-memory buffer that is written
+ * out a block at a time with writeRange. flush() must be called once the last
+ * record has been written.
+ *
+ * @param <T>
+ *            The record type.
+ */
+public class RunWriter<T extends CacheObject> {
+
+    private CacheArray<T> array;
+    private long next; // Index the buffer is written to.
+    private ByteBuffer buffer;
+    private int width;
+    private int bufferRecords;
+    private int count;
+
+    /**
+     * @param from
+     *            Index of the first record to write.
+     * @param bufferRecords
+     *            Number of records buffered before a write, normally a
+     *            block.
+     */
+    public RunWriter(CacheArray<T> array, long from, int bufferRecords) {
+        this.array = array;
+        this.next = from;
+        this.width = array.getRecordWidth();
+        this.bufferRecords = Math.max(1, bufferRecords);
+        this.buffer = ByteBuffer.allocate(this.bufferRecords * width);
+        this.count = 0;
+    }
+
+    public void write(T v) throws IOException {
+        v.write(buffer, count * width);
+        if (++count == bufferRecords) {
+            flush();
+        }
+    }
+
+    /**
+     * Appends a record that is already encoded.
+     * 
+     * @param src
+     *            Buffer holding the record.
+     * @param offset
+     *            Offset of the record in src.
+     */
+    public void writeEncoded(ByteBuffer src, int offset) throws IOException {
+        System.arraycopy(src.array(), offset, buffer.array(), count * width,
+                width);
+        if (++count == bufferRecords) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered records to the array.
+     */
+    public void flush() throws IOException {
+        if (count > 0) {
+            buffer.clear();
+            array.writeRange(next, count, buffer);
+            next += count;
+            count = 0;
+        }
+    }
+
+    /**
+     * @return Index the next record will be written to.
+     */
+    public long position() {
+        return next + count;
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+import com.airw.cache.LRUCache;
+
+/**
+ * Distribution sort. A range that does not fit in the cache is split by
+ * about M/2B splitters taken from a random sample. Its records are counted
+ * per bucket, scattered through block buffers into their bucket positions
+ * in a scratch array by a Distribution, and copied back. Then every bucket
+ * is sorted the same way in place. Ranges that fit in the cache are sorted
+ * in memory.
+ * 
+ * Records equal to a splitter get a bucket of their own that needs no
+ * further sorting, so many duplicates cannot stop the recursion from making
+ * progress.
+ * 
+ * @param <T>
+ */
+public class SampleSort<T extends CacheObject> extends Sort<T> {
+
+    // Sample records drawn per splitter.
+    private static final int OVERSAMPLING = 16;
+
+    private Random random;
+
+    public SampleSort(CacheArray<T> array, Comparator<T> comp) {
+        super(array, comp);
+        random = new Random();
+    }
+
+    public void sort() throws IOException {
+        sampleAux(0, array.size());
+    }
+
+    // Sorts elements from lowIndex to highIndex - 1.
+    public void sampleAux(long lowIndex, long highIndex) throws IOException {
+        long numElems = highIndex - lowIndex;
+        if (numElems <= 1) {
+            return;
+        }
+
+        if (fitsInCache(numElems)) {
+            sortInMemory(lowIndex, highIndex);
+            return;
+        }
+
+        LRUCache cache = array.getCache();
+
+        // One block buffer per bucket and one for the input.
+        long K = Math.max(2, cache.cacheSize() / (2 * cache.getBlockSize()));
+        List<T> splitters = pickSplitters(lowIndex, highIndex, (int) K);
+        Distribution<T> d = new Distribution<T>(array, lowIndex, highIndex,
+                splitters, comp, (int) cache.getBlockSize());
+        d.getScratch().copyRange(0, array, lowIndex, numElems);
+        d.close();
+
+        // Buckets of records equal to a splitter are already sorted.
+        for (int b = 0; b < d.numBuckets(); b++) {
+            if (!Distribution.holdsEqualKeys(b)) {
+                long start = lowIndex + d.bucketStart(b);
+                sampleAux(start, start + d.bucketSize(b));
+            }
+        }
+    }
+
+    /**
+     * Picks up to k - 1 distinct splitters from a random sample of the range.
+     */
+    private List<T> pickSplitters(long lowIndex, long highIndex, int k)
+            throws IOException {
+        long numElems = highIndex - lowIndex;
+        int sampleSize = (int) Math.min(numElems, (long) k * OVERSAMPLING);
+        List<T> sample = new ArrayList<T>(sampleSize);
+        for (int i = 0; i < sampleSize; i++) {
+            sample.add(array.get(lowIndex + (long) (random.nextDouble() * numElems)));
+        }
+        return Distribution.splitters(sample, k, comp);
+    }
+
+}
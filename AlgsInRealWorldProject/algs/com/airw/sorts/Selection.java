@@ -0,0 +1,155 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+
+/**
+ * Selection on a CacheArray without sorting all of it. topK and
+ * approximateQuantiles read the array in one sequential pass and leave it
+ * untouched. select reorders the array in place with QuickSort's partition,
+ * so only the side holding the wanted rank is visited at every level.
+ * 
+ * @param <T>
+ */
+public class Selection<T extends CacheObject> {
+
+    // Sample size used by approximateQuantiles when none is given.
+    public static final int DEFAULT_SAMPLE_SIZE = 4096;
+
+    private CacheArray<T> array;
+    private Comparator<T> comp;
+    private QuickSort<T> quickSort;
+    private Random random;
+
+    public Selection(CacheArray<T> array, Comparator<T> comp) {
+        this.array = array;
+        this.comp = comp;
+        this.quickSort = new QuickSort<T>(array, comp);
+        this.random = new Random();
+    }
+
+    /**
+     * Returns the k smallest records in sorted order. Keeps a bounded max
+     * heap of the k smallest records seen so far while streaming over the
+     * array, so it needs memory for k records and a single pass.
+     * 
+     * @throws IOException
+     */
+    public List<T> topK(int k) throws IOException {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative.");
+        }
+        List<T> result = new ArrayList<T>(k);
+        if (k == 0) {
+            return result;
+        }
+
+        PriorityQueue<T> heap = new PriorityQueue<T>(k,
+                Collections.reverseOrder(comp));
+        RunReader<T> reader = new RunReader<T>(array, 0, array.size(),
+                (int) array.getCache().getBlockSize());
+        while (reader.hasNext()) {
+            T v = reader.next();
+            if (heap.size() < k) {
+                heap.add(v);
+            } else if (comp.compare(v, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(v);
+            }
+        }
+        result.addAll(heap);
+        Collections.sort(result, comp);
+        return result;
+    }
+
+    /**
+     * Returns the record of the given rank, counting from 0, as a full sort
+     * would place it. The array is reordered in place: afterwards that record
+     * is at index rank, the records before it are <= it and the records after
+     * it are >= it. Ranges that fit in the cache are finished in memory.
+     * 
+     * @throws IOException
+     */
+    public T select(long rank) throws IOException {
+        if (rank < 0 || rank >= array.size()) {
+            throw new IndexOutOfBoundsException(
+                    "Attempted to select a rank out of bounds.");
+        }
+
+        long lowIndex = 0;
+        long highIndex = array.size() - 1;
+        while (!quickSort.fitsInCache(highIndex - lowIndex + 1)) {
+            long pivotIndex = quickSort.partition(lowIndex, highIndex);
+            if (rank == pivotIndex) {
+                return array.get(rank);
+            } else if (rank < pivotIndex) {
+                highIndex = pivotIndex - 1;
+            } else {
+                lowIndex = pivotIndex + 1;
+            }
+        }
+        quickSort.sortInMemory(lowIndex, highIndex + 1);
+        return array.get(rank);
+    }
+
+    /**
+     * @return Approximate quantiles from a sample of DEFAULT_SAMPLE_SIZE
+     *         records.
+     * @throws IOException
+     */
+    public List<T> approximateQuantiles(int numQuantiles) throws IOException {
+        return approximateQuantiles(numQuantiles, DEFAULT_SAMPLE_SIZE);
+    }
+
+    /**
+     * Returns the numQuantiles - 1 records splitting the array into
+     * numQuantiles parts of about equal size, estimated from a uniform
+     * reservoir sample drawn in one pass. The rank error of each is about
+     * n / sqrt(sampleSize).
+     * 
+     * @throws IOException
+     */
+    public List<T> approximateQuantiles(int numQuantiles, int sampleSize)
+            throws IOException {
+        if (numQuantiles < 1 || sampleSize < 1) {
+            throw new IllegalArgumentException(
+                    "numQuantiles and sampleSize must be positive.");
+        }
+
+        List<T> sample = new ArrayList<T>(sampleSize);
+        RunReader<T> reader = new RunReader<T>(array, 0, array.size(),
+                (int) array.getCache().getBlockSize());
+        long seen = 0;
+        while (reader.hasNext()) {
+            T v = reader.next();
+            if (sample.size() < sampleSize) {
+                sample.add(v);
+            } else {
+                long slot = (long) (random.nextDouble() * (seen + 1));
+                if (slot < sampleSize) {
+                    sample.set((int) slot, v);
+                }
+            }
+            seen++;
+        }
+        Collections.sort(sample, comp);
+
+        List<T> quantiles = new ArrayList<T>(Math.max(0, numQuantiles - 1));
+        if (sample.isEmpty()) {
+            return quantiles;
+        }
+        for (int i = 1; i < numQuantiles; i++) {
+            quantiles.add(sample.get((int) ((long) i * sample.size() / numQuantiles)));
+        }
+        return quantiles;
+    }
+
+}
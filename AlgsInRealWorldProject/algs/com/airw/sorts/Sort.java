@@ -1,29 +1,96 @@
-package com.airw.sorts;
-
-import java.io.IOException;
-import java.util.Comparator;
-
-import com.airw.cache.CacheArray;
-import com.airw.cache.CacheObject;
-
-
-/**
- * The sort interface. The implementor must implement sortCore only.
- * @param <T>
- * 
- * @param <T>
- *            A comparable.
- */
-public abstract class Sort<T extends CacheObject> {
-
-    protected CacheArray<T> array;
-    protected Comparator<T> comp;
-    
-    public Sort(CacheArray<T> array, Comparator<T> comp){
-        this.array = array;
-        this.comp = comp;
-    }
-    
-    public abstract void sort() throws IOException;
-
-}
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+
+
+/**
+ * The sort interface. The implementor must implement sortCore only.
+ * @param <T>
+ * 
+ * @param <T>
+ *            A comparable.
+ */
+public abstract class Sort<T extends CacheObject> {
+
+    protected CacheArray<T> array;
+    protected Comparator<T> comp;
+    
+    public Sort(CacheArray<T> array, Comparator<T> comp){
+        this.array = array;
+        this.comp = comp;
+    }
+    
+    public abstract void sort() throws IOException;
+
+    /**
+     * @return Whether a range of numElems records fits in the cache, so it
+     *         can be sorted in memory with sortInMemory.
+     */
+    protected boolean fitsInCache(long numElems) {
+        return numElems <= array.getCache().cacheSize();
+    }
+
+    /**
+     * Sorts the records from index from up to to in memory: one sequential
+     * read, a stable sort of the decoded records, and one sequential write
+     * back.
+     * 
+     * @throws IOException
+     */
+    protected void sortInMemory(long from, long to) throws IOException {
+        List<T> values = load(from, to);
+        Collections.sort(values, comp);
+        store(values, from);
+    }
+
+    /**
+     * Reads the records from index from up to to into memory, a block at a
+     * time.
+     * 
+     * @return The decoded records in array order.
+     * @throws IOException
+     */
+    protected List<T> load(long from, long to) throws IOException {
+        return load(array, from, to);
+    }
+
+    /**
+     * Reads the records of src from index from up to to into memory, a block
+     * at a time.
+     * 
+     * @return The decoded records in array order.
+     * @throws IOException
+     */
+    protected List<T> load(CacheArray<T> src, long from, long to)
+            throws IOException {
+        List<T> values = new ArrayList<T>((int) (to - from));
+        RunReader<T> reader = new RunReader<T>(src, from, to,
+                (int) src.getCache().getBlockSize());
+        while (reader.hasNext()) {
+            values.add(reader.next());
+        }
+        return values;
+    }
+
+    /**
+     * Writes records to the array starting at index from, a block at a time.
+     * 
+     * @throws IOException
+     */
+    protected void store(List<T> values, long from) throws IOException {
+        RunWriter<T> writer = new RunWriter<T>(array, from, (int) array
+                .getCache().getBlockSize());
+        for (T v : values) {
+            writer.write(v);
+        }
+        writer.flush();
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.airw.cache.CacheArray;
+
+/**
+ * Helpers shared by the fork-join sorts.
+ *
+ */
+class SortTask {
+
+    /**
+     * Carries an IOException out of a fork-join task.
+     */
+    static class IOFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        IOFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    static void checkThreadSafe(CacheArray<?> array) {
+        if (!array.getCache().isThreadSafe()) {
+            throw new IllegalArgumentException(
+                    "Parallel sorts need a thread-safe cache such as ConcurrentLRUCache.");
+        }
+    }
+
+    /**
+     * Runs a task on a new pool and rethrows the first IOException of any of
+     * its subtasks.
+     */
+    static void run(int parallelism, ForkJoinTask<?> task) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(task);
+        } catch (IOFailure e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -1,30 +1,37 @@
-package com.airw.framework;
-
-import com.airw.cache.CacheObject;
-
-public class CacheInteger extends CacheObject {
-
-    private Integer n;
-
-    public CacheInteger(Integer n) {
-        this.n = n;
-    }
-
-    public int valueOf() {
-        return n.intValue();
-    }
-
-    public static CacheInteger parseInt(String s) {
-        return new CacheInteger(Integer.parseInt(s));
-    }
-
-    public String toString() {
-        return n.toString();
-    }
-
-    @Override
-    public String myToString() {
-        return n.toString();
-    }
-
-}
+package com.airw.framework;
+
+import java.nio.ByteBuffer;
+
+import com.airw.cache.CacheObject;
+
+public class CacheInteger extends CacheObject {
+
+    private int n;
+
+    public CacheInteger(int n) {
+        this.n = n;
+    }
+
+    public int valueOf() {
+        return n;
+    }
+
+    public static CacheInteger parseInt(String s) {
+        return new CacheInteger(Integer.parseInt(s));
+    }
+
+    public String toString() {
+        return Integer.toString(n);
+    }
+
+    @Override
+    public String myToString() {
+        return Integer.toString(n);
+    }
+
+    @Override
+    public void write(ByteBuffer buf, int offset) {
+        buf.putInt(offset, n);
+    }
+
+}
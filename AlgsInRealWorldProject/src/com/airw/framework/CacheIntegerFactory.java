@@ -1,21 +1,34 @@
-package com.airw.framework;
-
-import java.util.Comparator;
-
-public class CacheIntegerFactory implements
-        CacheObjectFactory<CacheInteger> {
-
-    @Override
-    public CacheInteger createCacheObject(String s) {
-        return CacheInteger.parseInt(s);
-    }
-
-    @Override
-    public Comparator<CacheInteger> getBasicComparator() {
-        return new Comparator<CacheInteger>() {
-            public int compare(CacheInteger a, CacheInteger b) {
-                return Integer.compare(a.valueOf(), b.valueOf());
-            }
-        };
-    }
-}
+package com.airw.framework;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+public class CacheIntegerFactory implements
+        CacheObjectFactory<CacheInteger> {
+
+    private static final int RECORD_WIDTH = 4;
+
+    @Override
+    public CacheInteger createCacheObject(String s) {
+        return CacheInteger.parseInt(s);
+    }
+
+    @Override
+    public CacheInteger createCacheObject(ByteBuffer buf, int offset) {
+        return new CacheInteger(buf.getInt(offset));
+    }
+
+    @Override
+    public Comparator<CacheInteger> getBasicComparator() {
+        return new Comparator<CacheInteger>() {
+            public int compare(CacheInteger a, CacheInteger b) {
+                return Integer.compare(a.valueOf(), b.valueOf());
+            }
+        };
+    }
+
+    @Override
+    public int getRecordWidth() {
+        return RECORD_WIDTH;
+    }
+}
@@ -0,0 +1,37 @@
+package com.airw.framework;
+
+import java.nio.ByteBuffer;
+
+import com.airw.cache.CacheObject;
+
+public class CacheLong extends CacheObject {
+
+    private long n;
+
+    public CacheLong(long n) {
+        this.n = n;
+    }
+
+    public long valueOf() {
+        return n;
+    }
+
+    public static CacheLong parseLong(String s) {
+        return new CacheLong(Long.parseLong(s));
+    }
+
+    public String toString() {
+        return Long.toString(n);
+    }
+
+    @Override
+    public String myToString() {
+        return Long.toString(n);
+    }
+
+    @Override
+    public void write(ByteBuffer buf, int offset) {
+        buf.putLong(offset, n);
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.airw.framework;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+public class CacheLongFactory implements CacheObjectFactory<CacheLong> {
+
+    private static final int RECORD_WIDTH = 8;
+
+    @Override
+    public CacheLong createCacheObject(String s) {
+        return CacheLong.parseLong(s);
+    }
+
+    @Override
+    public CacheLong createCacheObject(ByteBuffer buf, int offset) {
+        return new CacheLong(buf.getLong(offset));
+    }
+
+    @Override
+    public Comparator<CacheLong> getBasicComparator() {
+        return new Comparator<CacheLong>() {
+            public int compare(CacheLong a, CacheLong b) {
+                return Long.compare(a.valueOf(), b.valueOf());
+            }
+        };
+    }
+
+    @Override
+    public int getRecordWidth() {
+        return RECORD_WIDTH;
+    }
+}
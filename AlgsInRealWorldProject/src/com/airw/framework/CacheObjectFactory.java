@@ -1,19 +1,39 @@
-package com.airw.framework;
-
-import java.util.Comparator;
-
-import com.airw.cache.CacheObject;
-
-/**
- * Interface for cache objects. 
- *
- * @param <T>
- *          A comparable type.
- */
-public interface CacheObjectFactory<T extends CacheObject> {
-    
-    public T createCacheObject(String s); 
-    
-    public Comparator<T> getBasicComparator();
-
-}
+package com.airw.framework;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+import com.airw.cache.CacheObject;
+
+/**
+ * Interface for cache objects. 
+ *
+ * @param <T>
+ *          A comparable type.
+ */
+public interface CacheObjectFactory<T extends CacheObject> {
+    
+    /**
+     * Parses the text form of an object, as found in the input and output
+     * files of a FileCacheArray.
+     */
+    public T createCacheObject(String s); 
+
+    /**
+     * Decodes an object from a binary record written by CacheObject.write.
+     * 
+     * @param buf
+     *            The buffer holding the record.
+     * @param offset
+     *            Absolute offset of the record in buf.
+     */
+    public T createCacheObject(ByteBuffer buf, int offset);
+    
+    public Comparator<T> getBasicComparator();
+
+    /**
+     * The fixed number of bytes a binary record takes up.
+     */
+    public int getRecordWidth();
+
+}
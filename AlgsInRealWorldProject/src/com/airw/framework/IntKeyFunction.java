@@ -0,0 +1,26 @@
+package com.airw.framework;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Extracts a primitive int sort key from a record, so a sort can compare
+ * keys instead of decoded records.
+ * 
+ * @param <T>
+ */
+public interface IntKeyFunction<T> {
+
+    public int key(T v);
+
+    /**
+     * Reads the key of an encoded record without decoding the record. Must
+     * agree with key(T) on the record written by CacheObject.write.
+     * 
+     * @param buf
+     *            The buffer holding the record.
+     * @param offset
+     *            Absolute offset of the record in buf.
+     */
+    public int key(ByteBuffer buf, int offset);
+
+}
@@ -1,28 +1,40 @@
-package com.airw.framework;
-
-import com.airw.cache.CacheObject;
-
-public class ListRankNode extends CacheObject {
-
-    public int id;
-    public int next;
-    public int weight;
-    public int rank;
-    public int next_next;
-    public boolean flag;
-    public int address;
-
-    public ListRankNode(int id, int next, int weight, int rank, int next_next, boolean flag) {
-        this.id = id;
-        this.next = next;
-        this.weight = weight;
-        this.rank = rank;
-        this.next_next = next_next;
-        this.flag = flag;
-    }
-
-    @Override
-    public String myToString() {
-        return id + " " + next + " " + weight + " " + rank + " " + next_next + " " + flag;
-    }
-}
+package com.airw.framework;
+
+import java.nio.ByteBuffer;
+
+import com.airw.cache.CacheObject;
+
+public class ListRankNode extends CacheObject {
+
+    public int id;
+    public int next;
+    public int weight;
+    public int rank;
+    public int next_next;
+    public boolean flag;
+    public int address;
+
+    public ListRankNode(int id, int next, int weight, int rank, int next_next, boolean flag) {
+        this.id = id;
+        this.next = next;
+        this.weight = weight;
+        this.rank = rank;
+        this.next_next = next_next;
+        this.flag = flag;
+    }
+
+    @Override
+    public String myToString() {
+        return id + " " + next + " " + weight + " " + rank + " " + next_next + " " + flag;
+    }
+
+    @Override
+    public void write(ByteBuffer buf, int offset) {
+        buf.putInt(offset, id);
+        buf.putInt(offset + 4, next);
+        buf.putInt(offset + 8, weight);
+        buf.putInt(offset + 12, rank);
+        buf.putInt(offset + 16, next_next);
+        buf.put(offset + 20, (byte) (flag ? 1 : 0));
+    }
+}
@@ -1,56 +1,128 @@
-package com.airw.framework;
-
-import java.util.Comparator;
-
-public class ListRankNodeFactory implements CacheObjectFactory<ListRankNode> {
-
-    @Override
-    public ListRankNode createCacheObject(String s) {
-        String[] comps = s.split(" ");
-        int id = Integer.parseInt(comps[0]);
-        int next = Integer.parseInt(comps[1]);
-        int weight = Integer.parseInt(comps[2]);
-        int rank = Integer.parseInt(comps[3]);
-        int next_next = Integer.parseInt(comps[4]);
-        boolean flag = Boolean.parseBoolean(comps[5]);
-        return new ListRankNode(id, next, weight, rank, next_next, flag);
-    }
-
-    @Override
-    public Comparator<ListRankNode> getBasicComparator() {
-        return null;
-    }
-
-    public Comparator<ListRankNode> addressComparator() {
-        return new Comparator<ListRankNode>() {
-            public int compare(ListRankNode a, ListRankNode b) {
-                return Integer.compare(a.id, b.id);
-            }
-        };
-    }
-
-    public Comparator<ListRankNode> nextAddressComparator() {
-        return new Comparator<ListRankNode>() {
-            public int compare(ListRankNode a, ListRankNode b) {
-                return Integer.compare(Math.abs(a.next), Math.abs(b.next));
-            }
-        };
-    }
-
-    public Comparator<ListRankNode> nextNextAddressComparator() {
-        return new Comparator<ListRankNode>() {
-            public int compare(ListRankNode a, ListRankNode b) {
-                return Integer.compare(Math.abs(a.next_next), Math.abs(b.next_next));
-            }
-        };
-    }
-
-    public Comparator<ListRankNode> rankComparator() {
-        return new Comparator<ListRankNode>() {
-            public int compare(ListRankNode a, ListRankNode b) {
-                return Integer.compare(a.rank, b.rank);
-            }
-        };
-    }
-
-}
+package com.airw.framework;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+public class ListRankNodeFactory implements CacheObjectFactory<ListRankNode> {
+
+    // Five ints and the flag byte.
+    private static final int RECORD_WIDTH = 5 * 4 + 1;
+
+    // Offsets of the fields in a record.
+    private static final int ID = 0;
+    private static final int NEXT = 4;
+    private static final int WEIGHT = 8;
+    private static final int RANK = 12;
+    private static final int NEXT_NEXT = 16;
+    private static final int FLAG = 20;
+
+    @Override
+    public ListRankNode createCacheObject(String s) {
+        String[] comps = s.split(" ");
+        int id = Integer.parseInt(comps[0]);
+        int next = Integer.parseInt(comps[1]);
+        int weight = Integer.parseInt(comps[2]);
+        int rank = Integer.parseInt(comps[3]);
+        int next_next = Integer.parseInt(comps[4]);
+        boolean flag = Boolean.parseBoolean(comps[5]);
+        return new ListRankNode(id, next, weight, rank, next_next, flag);
+    }
+
+    @Override
+    public ListRankNode createCacheObject(ByteBuffer buf, int offset) {
+        return new ListRankNode(buf.getInt(offset + ID), buf.getInt(offset
+                + NEXT), buf.getInt(offset + WEIGHT), buf.getInt(offset + RANK),
+                buf.getInt(offset + NEXT_NEXT), buf.get(offset + FLAG) != 0);
+    }
+
+    @Override
+    public Comparator<ListRankNode> getBasicComparator() {
+        return null;
+    }
+
+    @Override
+    public int getRecordWidth() {
+        return RECORD_WIDTH;
+    }
+
+    public Comparator<ListRankNode> addressComparator() {
+        return new Comparator<ListRankNode>() {
+            public int compare(ListRankNode a, ListRankNode b) {
+                return Integer.compare(a.id, b.id);
+            }
+        };
+    }
+
+    public Comparator<ListRankNode> nextAddressComparator() {
+        return new Comparator<ListRankNode>() {
+            public int compare(ListRankNode a, ListRankNode b) {
+                return Integer.compare(Math.abs(a.next), Math.abs(b.next));
+            }
+        };
+    }
+
+    public Comparator<ListRankNode> nextNextAddressComparator() {
+        return new Comparator<ListRankNode>() {
+            public int compare(ListRankNode a, ListRankNode b) {
+                return Integer.compare(Math.abs(a.next_next), Math.abs(b.next_next));
+            }
+        };
+    }
+
+    public Comparator<ListRankNode> rankComparator() {
+        return new Comparator<ListRankNode>() {
+            public int compare(ListRankNode a, ListRankNode b) {
+                return Integer.compare(a.rank, b.rank);
+            }
+        };
+    }
+
+    public IntKeyFunction<ListRankNode> addressKey() {
+        return new IntKeyFunction<ListRankNode>() {
+            public int key(ListRankNode v) {
+                return v.id;
+            }
+
+            public int key(ByteBuffer buf, int offset) {
+                return buf.getInt(offset + ID);
+            }
+        };
+    }
+
+    public IntKeyFunction<ListRankNode> nextAddressKey() {
+        return new IntKeyFunction<ListRankNode>() {
+            public int key(ListRankNode v) {
+                return Math.abs(v.next);
+            }
+
+            public int key(ByteBuffer buf, int offset) {
+                return Math.abs(buf.getInt(offset + NEXT));
+            }
+        };
+    }
+
+    public IntKeyFunction<ListRankNode> nextNextAddressKey() {
+        return new IntKeyFunction<ListRankNode>() {
+            public int key(ListRankNode v) {
+                return Math.abs(v.next_next);
+            }
+
+            public int key(ByteBuffer buf, int offset) {
+                return Math.abs(buf.getInt(offset + NEXT_NEXT));
+            }
+        };
+    }
+
+    public IntKeyFunction<ListRankNode> rankKey() {
+        return new IntKeyFunction<ListRankNode>() {
+            public int key(ListRankNode v) {
+                return v.rank;
+            }
+
+            public int key(ByteBuffer buf, int offset) {
+                return buf.getInt(offset + RANK);
+            }
+        };
+    }
+
+}
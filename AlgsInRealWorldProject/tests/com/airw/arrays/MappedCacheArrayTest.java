@@ -0,0 +1,116 @@
+package com.airw.arrays;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheInteger;
+import com.airw.framework.CacheIntegerFactory;
+
+/**
+ * Round trips records through MappedCacheArray: both constructors, get and
+ * set, readRange and writeRange, and the text file written on close.
+ *
+ */
+public class MappedCacheArrayTest {
+
+    private static int fileSize = 1001;
+    private static int blockSize = 10;
+    private static int numBlocksInCache = 10;
+
+    public static void main(String[] args) throws IOException {
+        LRUCache lru = new LRUCache(blockSize, numBlocksInCache, 5);
+        CacheIntegerFactory cif = new CacheIntegerFactory();
+
+        // Empty arrays start zeroed.
+        MappedCacheArray<CacheInteger> empty =
+                new MappedCacheArray<CacheInteger>(cif, 0, lru);
+        check(empty.size() == 0, "size 0: size " + empty.size());
+        empty.close();
+        MappedCacheArray<CacheInteger> zeroed =
+                new MappedCacheArray<CacheInteger>(cif, fileSize, lru);
+        check(zeroed.size() == fileSize, "zeroed: size " + zeroed.size());
+        for (long i = 0; i < fileSize; i++) {
+            check(zeroed.get(i).valueOf() == 0, "zeroed: not 0 at " + i);
+        }
+
+        // get and set.
+        for (int i = 0; i < fileSize; i++) {
+            zeroed.set(i, new CacheInteger(3 * i));
+        }
+        for (int i = 0; i < fileSize; i++) {
+            check(zeroed.get(i).valueOf() == 3 * i, "set: wrong value at " + i);
+        }
+        boolean outOfBounds = false;
+        try {
+            zeroed.get(fileSize);
+        } catch (IndexOutOfBoundsException e) {
+            outOfBounds = true;
+        }
+        check(outOfBounds, "get past the end did not throw");
+
+        // readRange and writeRange of an unaligned range.
+        int from = 17;
+        int count = 333;
+        ByteBuffer buf = ByteBuffer.allocate(count * zeroed.getRecordWidth());
+        zeroed.readRange(from, count, buf);
+        check(!buf.hasRemaining(), "readRange: buffer not filled");
+        buf.flip();
+        for (int i = 0; i < count; i++) {
+            int v = buf.getInt();
+            check(v == 3 * (from + i), "readRange: found " + v + " at "
+                    + (from + i));
+        }
+        buf.clear();
+        for (int i = 0; i < count; i++) {
+            buf.putInt(-i);
+        }
+        buf.flip();
+        zeroed.writeRange(from, count, buf);
+        check(!buf.hasRemaining(), "writeRange: buffer not consumed");
+        for (int i = 0; i < fileSize; i++) {
+            int expected = i >= from && i < from + count ? from - i : 3 * i;
+            check(zeroed.get(i).valueOf() == expected, "writeRange: found "
+                    + zeroed.get(i).valueOf() + " at " + i);
+        }
+        zeroed.close();
+
+        // A text file is loaded, and rewritten on close.
+        File testFile = new File("testMapped.txt");
+        BufferedWriter bw = new BufferedWriter(new FileWriter(testFile));
+        for (int i = 0; i < fileSize; i++) {
+            bw.write("" + i);
+            bw.newLine();
+        }
+        bw.close();
+        MappedCacheArray<CacheInteger> text =
+                new MappedCacheArray<CacheInteger>(cif, testFile.getPath(),
+                        lru);
+        check(text.size() == fileSize, "text: size " + text.size());
+        for (int i = 0; i < fileSize; i++) {
+            check(text.get(i).valueOf() == i, "text: wrong value at " + i);
+            text.set(i, new CacheInteger(fileSize - i));
+        }
+        text.close();
+        BufferedReader br = new BufferedReader(new FileReader(testFile));
+        for (int i = 0; i < fileSize; i++) {
+            String line = br.readLine();
+            check(("" + (fileSize - i)).equals(line), "close: found " + line
+                    + " on line " + i);
+        }
+        check(br.readLine() == null, "close: extra lines");
+        br.close();
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException(what);
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.airw.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.airw.arrays.IntCacheArray;
+import com.airw.framework.CacheInteger;
+
+/**
+ * Runs several threads of gets and sets on one ConcurrentLRUCache, each on
+ * its own range of a shared array. Checks the values every thread reads
+ * back and that the counters summed over the segments add up.
+ *
+ */
+public class ConcurrentCacheTest {
+
+    private static int numThreads = 8;
+    private static int recordsPerThread = 1000;
+    private static int numRounds = 5;
+    private static int blockSize = 10;
+    private static int numBlocksInCache = 64;
+    private static int numSegments = 8;
+
+    public static void main(String[] args) throws Exception {
+        final ConcurrentLRUCache lru = new ConcurrentLRUCache(blockSize,
+                numBlocksInCache, 5, numSegments);
+        check(lru.cacheSize() == numBlocksInCache * blockSize, "cacheSize "
+                + lru.cacheSize());
+        final IntCacheArray array = new IntCacheArray(numThreads
+                * recordsPerThread, lru);
+        final List<Throwable> failures = Collections
+                .synchronizedList(new ArrayList<Throwable>());
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < numThreads; t++) {
+            final long from = (long) t * recordsPerThread;
+            final int base = t * 1000000;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int round = 0; round < numRounds; round++) {
+                            for (int i = 0; i < recordsPerThread; i++) {
+                                array.set(from + i, new CacheInteger(base
+                                        + round * recordsPerThread + i));
+                            }
+                            for (int i = 0; i < recordsPerThread; i++) {
+                                int v = array.get(from + i).valueOf();
+                                check(v == base + round * recordsPerThread + i,
+                                        "found " + v + " at " + (from + i));
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("A thread failed.",
+                    failures.get(0));
+        }
+
+        long expected = 2L * numThreads * numRounds * recordsPerThread;
+        check(lru.getAccesses() == expected, lru.getAccesses()
+                + " accesses, expected " + expected);
+        check(lru.getHits() + lru.getMisses() == lru.getAccesses(),
+                "hits and misses do not add up to the accesses");
+        long evictions = lru.getCleanEvictions() + lru.getDirtyEvictions()
+                + lru.getDroppedEvictions();
+        // Every miss brings in a block and every eviction removes one, and
+        // the workload is large enough to fill every segment.
+        check(lru.getMisses() - evictions == numBlocksInCache, lru.getMisses()
+                + " misses and " + evictions + " evictions leave "
+                + (lru.getMisses() - evictions) + " blocks cached");
+        check(lru.getDirtyEvictions() > 0, "no dirty evictions");
+        check(lru.getDroppedEvictions() == 0, lru.getDroppedEvictions()
+                + " dropped evictions");
+        array.close();
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException(what);
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.airw.cache;
+
+import java.io.IOException;
+import java.util.Random;
+
+import com.airw.arrays.IntCacheArray;
+import com.airw.framework.CacheInteger;
+
+/**
+ * Checks CacheArray.copyRange and fill against a plain int array: copies
+ * within one array whose ranges overlap in either direction, copies between
+ * arrays, and fills of partial and whole blocks, all at offsets that cross
+ * block boundaries.
+ *
+ */
+public class CopyRangeTest {
+
+    private static int fileSize = 1001;
+    private static int blockSize = 10;
+    private static int numBlocksInCache = 4;
+
+    public static void main(String[] args) throws IOException {
+        LRUCache lru = new LRUCache(blockSize, numBlocksInCache, 5);
+        IntCacheArray array = new IntCacheArray(fileSize, lru);
+        IntCacheArray other = new IntCacheArray(fileSize, lru);
+        int[] expected = new int[fileSize];
+        int[] otherExpected = new int[fileSize];
+        reset(array, expected, 0);
+        reset(other, otherExpected, 1000000);
+
+        // Destination before the source: must copy forwards.
+        copy(array, expected, 25, 3, 397, "forward overlap");
+        // Destination inside the source: must copy backwards.
+        copy(array, expected, 3, 25, 397, "backward overlap");
+        // Overlap by less than a block in both directions.
+        copy(array, expected, 100, 107, 55, "backward by 7");
+        copy(array, expected, 107, 100, 55, "forward by 7");
+        copy(array, expected, 40, 40, 120, "onto itself");
+        copy(array, expected, 0, 990, 11, "to the end");
+        copy(array, expected, 0, 0, 0, "nothing");
+
+        // Between arrays.
+        array.copyRange(13, other, 501, 444);
+        System.arraycopy(expected, 13, otherExpected, 501, 444);
+        checkValues(other, otherExpected, "other array");
+
+        // Fills within one block, across blocks, and of whole blocks.
+        fill(array, expected, 3, 4, -1, "inside a block");
+        fill(array, expected, 17, 28, -2, "across blocks");
+        fill(array, expected, 200, 100, -3, "whole blocks");
+        fill(array, expected, fileSize - 1, 1, -4, "last record");
+        fill(array, expected, 50, 0, -5, "nothing");
+
+        // Random copies and fills, many of them overlapping.
+        Random gen = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            int count = gen.nextInt(120);
+            int from = gen.nextInt(fileSize - count + 1);
+            int to = Math.max(0, Math.min(fileSize - count, from
+                    + gen.nextInt(81) - 40));
+            if (gen.nextInt(4) == 0) {
+                fill(array, expected, from, count, -i, "random fill " + i);
+            } else {
+                copy(array, expected, from, to, count, "random copy " + i);
+            }
+        }
+
+        boolean outOfBounds = false;
+        try {
+            array.copyRange(fileSize - 5, array, 0, 6);
+        } catch (IndexOutOfBoundsException e) {
+            outOfBounds = true;
+        }
+        check(outOfBounds, "copy past the end did not throw");
+        checkValues(array, expected, "after the failed copy");
+
+        array.close();
+        other.close();
+    }
+
+    private static void reset(IntCacheArray array, int[] expected, int base)
+            throws IOException {
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = base + i;
+            array.set(i, new CacheInteger(expected[i]));
+        }
+    }
+
+    private static void copy(IntCacheArray array, int[] expected, int from,
+            int to, int count, String what) throws IOException {
+        array.copyRange(from, array, to, count);
+        System.arraycopy(expected, from, expected, to, count);
+        checkValues(array, expected, what);
+    }
+
+    private static void fill(IntCacheArray array, int[] expected, int from,
+            int count, int value, String what) throws IOException {
+        array.fill(from, count, new CacheInteger(value));
+        for (int i = from; i < from + count; i++) {
+            expected[i] = value;
+        }
+        checkValues(array, expected, what);
+    }
+
+    private static void checkValues(IntCacheArray array, int[] expected,
+            String what) throws IOException {
+        for (int i = 0; i < expected.length; i++) {
+            int v = array.get(i).valueOf();
+            check(v == expected[i], what + ": found " + v + " at " + i
+                    + ", expected " + expected[i]);
+        }
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException(what);
+        }
+    }
+
+}
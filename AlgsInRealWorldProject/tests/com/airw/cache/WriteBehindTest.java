@@ -0,0 +1,158 @@
+package com.airw.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.airw.arrays.IntCacheArray;
+import com.airw.framework.CacheInteger;
+import com.airw.sorts.QuickSort;
+
+/**
+ * Checks write-behind: a sort with it turned on, misses on blocks that are
+ * still waiting for their write, and the report of a failed write.
+ *
+ */
+public class WriteBehindTest {
+
+    private static int fileSize = 1001;
+    private static int blockSize = 10;
+    private static int numBlocksInCache = 4;
+    private static int numBlocksPerSubFile = 5;
+
+    public static void main(String[] args) throws IOException {
+        testSort();
+        testPendingReads();
+        testFailure();
+    }
+
+    private static void testSort() throws IOException {
+        LRUCache lru = new LRUCache(blockSize, numBlocksInCache,
+                numBlocksPerSubFile);
+        lru.enableWriteBehind(8);
+        List<Integer> perm = new ArrayList<Integer>();
+        for (int i = 0; i < fileSize; i++) {
+            perm.add(i);
+        }
+        Collections.shuffle(perm);
+        IntCacheArray array = new IntCacheArray(fileSize, lru);
+        for (int i = 0; i < fileSize; i++) {
+            array.set(i, new CacheInteger(perm.get(i)));
+        }
+        new QuickSort<CacheInteger>(array, array.getFactory()
+                .getBasicComparator()).sort();
+        checkValues(array, "sort");
+        lru.close();
+        checkValues(array, "sort after close");
+        array.close();
+    }
+
+    /**
+     * Holds the flusher on its first write, so every evicted block stays
+     * pending and misses on it must be served from the queue.
+     */
+    private static void testPendingReads() throws IOException {
+        LRUCache lru = new LRUCache(blockSize, numBlocksInCache,
+                numBlocksPerSubFile);
+        GatedStore store = new GatedStore();
+        WriteBehindFlusher flusher = new WriteBehindFlusher(store, fileSize);
+        lru.useFlusher(flusher);
+        IntCacheArray array = new IntCacheArray(fileSize, lru);
+        for (int i = 0; i < fileSize; i++) {
+            array.set(i, new CacheInteger(i));
+        }
+        checkValues(array, "pending");
+        check(flusher.getFlushed() == 0, "pending: blocks were written");
+
+        store.gate.countDown();
+        lru.close();
+        check(flusher.getFlushed() > 0, "pending: nothing was written");
+        checkValues(array, "pending after close");
+        array.close();
+    }
+
+    /**
+     * Fails every write. Reads must return the pending blocks until the
+     * failure is reported, never the stale ones on disk.
+     */
+    private static void testFailure() throws IOException {
+        LRUCache lru = new LRUCache(blockSize, numBlocksInCache,
+                numBlocksPerSubFile);
+        GatedStore store = new GatedStore();
+        store.fail = true;
+        lru.useFlusher(new WriteBehindFlusher(store, fileSize));
+        IntCacheArray array = new IntCacheArray(fileSize, lru);
+        for (int i = 0; i < fileSize; i++) {
+            array.set(i, new CacheInteger(i));
+        }
+
+        store.gate.countDown();
+        boolean reported = false;
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!reported && System.currentTimeMillis() < deadline) {
+            try {
+                checkValues(array, "failure");
+            } catch (IOException e) {
+                reported = true;
+            }
+        }
+        check(reported, "failure: a read never reported the failed write");
+
+        boolean closeReported = false;
+        try {
+            lru.close();
+        } catch (IOException e) {
+            closeReported = true;
+        }
+        check(closeReported, "failure: close did not report the failed write");
+        array.close();
+    }
+
+    private static void checkValues(IntCacheArray array, String what)
+            throws IOException {
+        for (long i = 0; i < array.size(); i++) {
+            int v = array.get(i).valueOf();
+            check(v == i, what + ": found " + v + " at " + i);
+        }
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException(what);
+        }
+    }
+
+    /**
+     * Writes through to the sub-files once the gate opens, or fails.
+     */
+    private static class GatedStore extends BlockStore {
+
+        final CountDownLatch gate = new CountDownLatch(1);
+        volatile boolean fail;
+
+        GatedStore() {
+            super(blockSize, numBlocksPerSubFile);
+        }
+
+        @Override
+        public void writeBuffer(CacheArray<?> ca, long blockNumber,
+                ByteBuffer buf) throws IOException {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted at the gate.", e);
+            }
+            if (fail) {
+                throw new IOException("Simulated write failure of block "
+                        + blockNumber + ".");
+            }
+            super.writeBuffer(ca, blockNumber, buf);
+        }
+
+    }
+
+}
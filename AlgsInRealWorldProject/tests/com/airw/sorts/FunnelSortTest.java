@@ -0,0 +1,82 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.airw.arrays.EmptyCacheArray;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheIntegerFactory;
+import com.airw.framework.CacheInteger;
+import com.airw.framework.ListRankNode;
+import com.airw.framework.ListRankNodeFactory;
+
+public class FunnelSortTest {
+
+    private static int blockSize = 20;
+    private static int numBlocksInCache = 20;
+
+    // Around BASE_SIZE = 16, and sizes whose funnels have k = 3, 5, 10 and
+    // 22 leaves, none of them a power of two.
+    private static int[] sizes = { 0, 1, 15, 16, 17, 27, 100, 1000, 10001 };
+
+    public static void main(String[] args) throws IOException {
+        LRUCache lru = new LRUCache(blockSize, numBlocksInCache, 5);
+        CacheIntegerFactory cif = new CacheIntegerFactory();
+        Random gen = new Random(1);
+
+        for (int n : sizes) {
+            for (String input : new String[] { "random", "duplicates",
+                    "sorted", "reversed" }) {
+                List<CacheInteger> values = new ArrayList<CacheInteger>(n);
+                for (int i = 0; i < n; i++) {
+                    int v;
+                    if (input.equals("random")) {
+                        v = gen.nextInt();
+                    } else if (input.equals("duplicates")) {
+                        v = gen.nextInt(4);
+                    } else if (input.equals("sorted")) {
+                        v = i;
+                    } else {
+                        v = n - i;
+                    }
+                    values.add(new CacheInteger(v));
+                }
+
+                EmptyCacheArray<CacheInteger> array = new EmptyCacheArray<CacheInteger>(
+                        cif, n, lru);
+                for (int i = 0; i < n; i++) {
+                    array.set(i, values.get(i));
+                }
+                new FunnelSort<CacheInteger>(array, cif.getBasicComparator())
+                        .sort();
+                Collections.sort(values, cif.getBasicComparator());
+                SortChecks.checkContents(array, values,
+                        cif.getBasicComparator(), input + " n=" + n);
+                array.close();
+            }
+
+            // Few distinct keys: records with the same key must keep the
+            // order of their ids.
+            ListRankNodeFactory lrnf = new ListRankNodeFactory();
+            EmptyCacheArray<ListRankNode> nodes = new EmptyCacheArray<ListRankNode>(
+                    lrnf, n, lru);
+            for (int i = 0; i < n; i++) {
+                nodes.set(i, new ListRankNode(i, gen.nextInt(8), 0, 0, 0,
+                        false));
+            }
+            new FunnelSort<ListRankNode>(nodes, lrnf.nextAddressComparator())
+                    .sort();
+            for (long i = 1; i < n; i++) {
+                ListRankNode a = nodes.get(i - 1);
+                ListRankNode b = nodes.get(i);
+                SortChecks.check(a.next < b.next
+                        || (a.next == b.next && a.id < b.id),
+                        "stability n=" + n + ": out of order at " + i);
+            }
+            nodes.close();
+        }
+    }
+}
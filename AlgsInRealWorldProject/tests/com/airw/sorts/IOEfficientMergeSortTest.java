@@ -44,7 +44,32 @@ public class IOEfficientMergeSortTest {
         IOEfficientMergeSort<CacheInteger> ms = new IOEfficientMergeSort<CacheInteger>(array, cif.getBasicComparator());
 
         ms.sort();
+        SortChecks.checkIdentity(array, "recursive");
         
         array.close();
+        System.out.println("recursive: read " + ms.getBlocksRead()
+                + " blocks, wrote " + ms.getBlocksWritten() + " blocks");
+
+        // The same permutation again, sorted by run formation and merging.
+        File runFile = new File("testIORunFormation.txt");
+        bw = new BufferedWriter(new FileWriter(runFile));
+        for (int i = 0; i < fileSize; i++) {
+            bw.write("" + perm.get(i));
+            bw.newLine();
+        }
+        bw.close();
+
+        lru = new LRUCache(blockSize, numBlocksInCache, 5);
+        array = new FileCacheArray<CacheInteger>(cif,
+                runFile.getAbsolutePath(), lru);
+        ms = new IOEfficientMergeSort<CacheInteger>(array,
+                cif.getBasicComparator());
+        ms.setRunFormation(true);
+        ms.sort();
+        SortChecks.checkIdentity(array, "run formation");
+        array.close();
+        System.out.println("run formation: " + ms.getNumPasses()
+                + " passes, read " + ms.getBlocksRead() + " blocks, wrote "
+                + ms.getBlocksWritten() + " blocks");
     }
 }
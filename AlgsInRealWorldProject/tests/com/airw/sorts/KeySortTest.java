@@ -0,0 +1,111 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import com.airw.arrays.EmptyCacheArray;
+import com.airw.cache.CacheArray;
+import com.airw.cache.LRUCache;
+import com.airw.framework.IntKeyFunction;
+import com.airw.framework.ListRankNode;
+import com.airw.framework.ListRankNodeFactory;
+
+public class KeySortTest {
+
+    private static int fileSize = 1001;
+    private static int blockSize = 20;
+    private static int numBlocksInCache = 20;
+
+    private static ListRankNodeFactory lrnf = new ListRankNodeFactory();
+
+    // Matches records whose fields are all equal.
+    private static final Comparator<ListRankNode> SAME_FIELDS =
+            new Comparator<ListRankNode>() {
+                public int compare(ListRankNode a, ListRankNode b) {
+                    return a.myToString().compareTo(b.myToString());
+                }
+            };
+
+    public static void main(String[] args) throws IOException {
+        LRUCache lru = new LRUCache(blockSize, numBlocksInCache, 5);
+        Random gen = new Random(1);
+        int inCache = lru.cacheSize() / 2;
+        int outOfCache = 10 * fileSize;
+
+        // Next addresses of both signs, sorted by their absolute value.
+        // Many records share an address, so the id order checks stability.
+        for (int n : new int[] { inCache, outOfCache }) {
+            List<ListRankNode> nodes = new ArrayList<ListRankNode>();
+            for (int i = 0; i < n; i++) {
+                int next = gen.nextInt(n / 4) * (gen.nextBoolean() ? 1 : -1);
+                nodes.add(new ListRankNode(i, next, 1, 0, 0, false));
+            }
+            sortAndCheck(lru, nodes, lrnf.nextAddressKey(), "abs " + n);
+        }
+
+        // Signed keys over the whole int range, with many duplicates, so
+        // every digit and the sign bit flip of the top one are exercised.
+        for (int n : new int[] { inCache, outOfCache }) {
+            List<ListRankNode> nodes = new ArrayList<ListRankNode>();
+            for (int i = 0; i < n; i++) {
+                int rank = gen.nextBoolean() ? gen.nextInt()
+                        : gen.nextInt(10) - 5;
+                nodes.add(new ListRankNode(i, 0, 1, rank, 0, false));
+            }
+            nodes.get(0).rank = Integer.MAX_VALUE;
+            nodes.get(1).rank = Integer.MIN_VALUE;
+            KeySort<ListRankNode> sort = sortAndCheck(lru, nodes,
+                    lrnf.rankKey(), "signed " + n);
+            SortChecks.check(sort.getNumPasses() == (n == inCache ? 0 : 4),
+                    "signed " + n + ": " + sort.getNumPasses() + " passes");
+        }
+
+        // Keys that differ in the low byte only take one pass, equal keys
+        // none.
+        List<ListRankNode> nodes = new ArrayList<ListRankNode>();
+        for (int i = 0; i < outOfCache; i++) {
+            nodes.add(new ListRankNode(i, 0, 1, gen.nextInt(100), 0, false));
+        }
+        KeySort<ListRankNode> sort = sortAndCheck(lru, nodes, lrnf.rankKey(),
+                "low byte");
+        SortChecks.check(sort.getNumPasses() == 1, "low byte: "
+                + sort.getNumPasses() + " passes");
+        for (ListRankNode v : nodes) {
+            v.rank = 7;
+        }
+        sort = sortAndCheck(lru, nodes, lrnf.rankKey(), "equal");
+        SortChecks.check(sort.getNumPasses() == 0, "equal: "
+                + sort.getNumPasses() + " passes");
+    }
+
+    /**
+     * Sorts the nodes with KeySort and checks the result against a stable
+     * in-memory sort of the same nodes.
+     */
+    private static KeySort<ListRankNode> sortAndCheck(LRUCache lru,
+            List<ListRankNode> nodes, final IntKeyFunction<ListRankNode> key,
+            String what) throws IOException {
+        CacheArray<ListRankNode> array = new EmptyCacheArray<ListRankNode>(
+                lrnf, nodes.size(), lru);
+        for (int i = 0; i < nodes.size(); i++) {
+            array.set(i, nodes.get(i));
+        }
+        KeySort<ListRankNode> sort = new KeySort<ListRankNode>(array, key);
+        sort.sort();
+
+        List<ListRankNode> expected = new ArrayList<ListRankNode>(nodes);
+        Collections.sort(expected, new Comparator<ListRankNode>() {
+            public int compare(ListRankNode a, ListRankNode b) {
+                return Integer.compare(key.key(a), key.key(b));
+            }
+        });
+        SortChecks.checkContents(array, expected, SAME_FIELDS, what);
+        array.close();
+        return sort;
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.airw.sorts;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import com.airw.arrays.FileCacheArray;
+import com.airw.cache.CacheArray;
+import com.airw.cache.ConcurrentLRUCache;
+import com.airw.framework.CacheIntegerFactory;
+import com.airw.framework.CacheInteger;
+
+public class ParallelSortTest {
+
+    private static int fileSize = 20001;
+    private static int blockSize = 20;
+    private static int numBlocksInCache = 64;
+    private static int numSegments = 8;
+    private static int parallelism = 4;
+    private static long cutoff = 1000;
+
+    public static void main(String[] args) throws IOException {
+
+        ArrayList<Integer> perm = new ArrayList<Integer>();
+        for (int i = 0; i < fileSize; i++) {
+            perm.add(i);
+        }
+        Collections.shuffle(perm);
+
+        CacheIntegerFactory cif = new CacheIntegerFactory();
+        for (String name : new String[] { "testParallelQuickSort.txt",
+                "testParallelMergeSort.txt", "testParallelIOMergeSort.txt",
+                "testParallelIntroSort.txt",
+                "testParallelMultiwaySort.txt" }) {
+            File testFile = new File(name);
+            BufferedWriter bw = new BufferedWriter(new FileWriter(testFile));
+            for (int i = 0; i < fileSize; i++) {
+                bw.write("" + perm.get(i));
+                bw.newLine();
+            }
+            bw.close();
+
+            ConcurrentLRUCache lru = new ConcurrentLRUCache(blockSize,
+                    numBlocksInCache, 5, numSegments);
+            CacheArray<CacheInteger> array = new FileCacheArray<CacheInteger>(
+                    cif, testFile.getAbsolutePath(), lru);
+
+            Sort<CacheInteger> sort;
+            if (name.contains("Quick")) {
+                sort = new ParallelQuickSort<CacheInteger>(array,
+                        cif.getBasicComparator(), parallelism, cutoff);
+            } else if (name.contains("Intro")) {
+                QuickSort<CacheInteger> qs = new ParallelQuickSort<CacheInteger>(
+                        array, cif.getBasicComparator(), parallelism, cutoff);
+                qs.setIntrosort(true);
+                sort = qs;
+            } else if (name.contains("Multiway")) {
+                QuickSort<CacheInteger> qs = new ParallelQuickSort<CacheInteger>(
+                        array, cif.getBasicComparator(), parallelism, cutoff);
+                qs.setMultiway(true);
+                sort = qs;
+            } else if (name.contains("IOMerge")) {
+                IOEfficientMergeSort<CacheInteger> ms = new IOEfficientMergeSort<CacheInteger>(
+                        array, cif.getBasicComparator());
+                ms.setParallelism(parallelism);
+                sort = ms;
+            } else {
+                sort = new ParallelMergeSort<CacheInteger>(array,
+                        cif.getBasicComparator(), parallelism, cutoff);
+            }
+
+            long start = System.nanoTime();
+            sort.sort();
+            System.out.println(name + ": " + (System.nanoTime() - start)
+                    / 1000000 + " ms, misses " + lru.getMisses());
+            SortChecks.checkIdentity(array, name);
+
+            array.close();
+        }
+    }
+}
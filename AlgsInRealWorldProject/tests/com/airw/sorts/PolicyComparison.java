@@ -0,0 +1,84 @@
+package com.airw.sorts;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import com.airw.arrays.FileCacheArray;
+import com.airw.cache.CacheArray;
+import com.airw.cache.EvictionPolicyType;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheInteger;
+import com.airw.framework.CacheIntegerFactory;
+
+/**
+ * Sorts the same permutation with every eviction policy and records the
+ * misses of QuickSort and IOEfficientMergeSort for each.
+ *
+ */
+public class PolicyComparison {
+
+    private static int blockSize = 20;
+    private static int numBlocksInCache = 20;
+    private static int blocksInFile = 5;
+    private static int n = 5000;
+
+    public static void main(String[] args) throws IOException {
+        ArrayList<Integer> perm = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++) {
+            perm.add(i);
+        }
+        Collections.shuffle(perm);
+
+        File recordFile = new File("PolicyMisses_BlockSize=" + blockSize
+                + "_numBlocksInCache=" + numBlocksInCache + "_blocksInFile"
+                + blocksInFile + ".txt");
+        BufferedWriter recordbw = new BufferedWriter(new FileWriter(recordFile));
+
+        for (EvictionPolicyType policy : EvictionPolicyType.values()) {
+            long quickMisses = sort(perm, policy, false);
+            long mergeMisses = sort(perm, policy, true);
+            System.out.println(policy + " QuickSort " + quickMisses
+                    + " IOEfficientMergeSort " + mergeMisses);
+            recordbw.write(policy + " " + quickMisses + " " + mergeMisses);
+            recordbw.newLine();
+        }
+        recordbw.close();
+    }
+
+    private static long sort(ArrayList<Integer> perm,
+            EvictionPolicyType policy, boolean merge) throws IOException {
+        File testFile = new File("PolicyComparison_Test.txt");
+        BufferedWriter bw = new BufferedWriter(new FileWriter(testFile));
+        for (int i = 0; i < perm.size(); i++) {
+            bw.write("" + perm.get(i));
+            bw.newLine();
+        }
+        bw.close();
+
+        LRUCache cache = new LRUCache(blockSize, numBlocksInCache,
+                blocksInFile, policy);
+        CacheIntegerFactory cif = new CacheIntegerFactory();
+        CacheArray<CacheInteger> array = new FileCacheArray<CacheInteger>(cif,
+                testFile.getAbsolutePath(), cache);
+
+        if (merge) {
+            new IOEfficientMergeSort<CacheInteger>(array,
+                    cif.getBasicComparator()).sort();
+        } else {
+            new QuickSort<CacheInteger>(array, cif.getBasicComparator()).sort();
+        }
+
+        for (long i = 0; i < array.size(); i++) {
+            if (array.get(i).valueOf() != i) {
+                throw new IllegalStateException(policy + " left index " + i
+                        + " unsorted.");
+            }
+        }
+        array.close();
+        return cache.getMisses();
+    }
+}
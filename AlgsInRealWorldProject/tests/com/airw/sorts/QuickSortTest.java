@@ -1,54 +1,99 @@
-package com.airw.sorts;
-
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-
-import com.airw.arrays.FileCacheArray;
-import com.airw.cache.CacheArray;
-import com.airw.cache.LRUCache;
-import com.airw.framework.CacheIntegerFactory;
-import com.airw.framework.CacheInteger;
-import com.airw.sorts.QuickSort;
-
-public class QuickSortTest {
-
-    private static int fileSize = 1001;
-    private static int blockSize = 20;
-    private static int numBlocksInCache = 20;
-
-    public static void main(String[] args) throws IOException {
-
-        ArrayList<Integer> perm = new ArrayList<Integer>();
-        for (int i = 0; i < fileSize; i++) {
-            perm.add(i);
-        }
-        Collections.shuffle(perm);
-        
-        File testFile = new File("testFileSortNew.txt");
-        FileWriter fw = new FileWriter(testFile);
-        BufferedWriter bw = new BufferedWriter(fw);
-        
-        // Copy first few lines of file.
-        for (int i = 0; i < fileSize; i++) {
-            bw.write("" + perm.get(i));
-            bw.newLine();
-        }
-        bw.close();
-        
-        LRUCache lru = new LRUCache(blockSize, numBlocksInCache, 5);
-        CacheIntegerFactory cif = new CacheIntegerFactory();
-        CacheArray<CacheInteger> array = new FileCacheArray<CacheInteger>(
-                cif, testFile.getAbsolutePath(), lru);
-
-        QuickSort<CacheInteger> qs = new QuickSort<CacheInteger>(array, cif.getBasicComparator());
-
-        qs.sort();
-        
-        array.close();
-
-    }
-}
+package com.airw.sorts;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.airw.arrays.FileCacheArray;
+import com.airw.cache.CacheArray;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheIntegerFactory;
+import com.airw.framework.CacheInteger;
+import com.airw.sorts.QuickSort;
+
+public class QuickSortTest {
+
+    private static int fileSize = 1001;
+    private static int blockSize = 20;
+    private static int numBlocksInCache = 20;
+
+    public static void main(String[] args) throws IOException {
+
+        ArrayList<Integer> perm = new ArrayList<Integer>();
+        for (int i = 0; i < fileSize; i++) {
+            perm.add(i);
+        }
+        Collections.shuffle(perm);
+        
+        File testFile = new File("testFileSortNew.txt");
+        FileWriter fw = new FileWriter(testFile);
+        BufferedWriter bw = new BufferedWriter(fw);
+        
+        // Copy first few lines of file.
+        for (int i = 0; i < fileSize; i++) {
+            bw.write("" + perm.get(i));
+            bw.newLine();
+        }
+        bw.close();
+        
+        LRUCache lru = new LRUCache(blockSize, numBlocksInCache, 5);
+        CacheIntegerFactory cif = new CacheIntegerFactory();
+        CacheArray<CacheInteger> array = new FileCacheArray<CacheInteger>(
+                cif, testFile.getAbsolutePath(), lru);
+
+        QuickSort<CacheInteger> qs = new QuickSort<CacheInteger>(array, cif.getBasicComparator());
+
+        qs.sort();
+        SortChecks.checkIdentity(array, "quick sort");
+        
+        array.close();
+
+        // Introsort on input with many repeated keys.
+        File introFile = new File("testIntroSort.txt");
+        bw = new BufferedWriter(new FileWriter(introFile));
+        for (int i = 0; i < fileSize; i++) {
+            bw.write("" + (perm.get(i) % 10));
+            bw.newLine();
+        }
+        bw.close();
+
+        array = new FileCacheArray<CacheInteger>(cif,
+                introFile.getAbsolutePath(), lru);
+        qs = new QuickSort<CacheInteger>(array, cif.getBasicComparator());
+        qs.setIntrosort(true);
+        qs.sort();
+
+        List<CacheInteger> expected = new ArrayList<CacheInteger>(fileSize);
+        for (int i = 0; i < fileSize; i++) {
+            expected.add(new CacheInteger(perm.get(i) % 10));
+        }
+        Collections.sort(expected, cif.getBasicComparator());
+        SortChecks.checkContents(array, expected, cif.getBasicComparator(),
+                "introsort");
+
+        array.close();
+
+        // Multiway partitioning of the same permutation as the first sort.
+        File multiwayFile = new File("testMultiwayQuickSort.txt");
+        bw = new BufferedWriter(new FileWriter(multiwayFile));
+        for (int i = 0; i < fileSize; i++) {
+            bw.write("" + perm.get(i));
+            bw.newLine();
+        }
+        bw.close();
+
+        array = new FileCacheArray<CacheInteger>(cif,
+                multiwayFile.getAbsolutePath(), lru);
+        qs = new QuickSort<CacheInteger>(array, cif.getBasicComparator());
+        qs.setMultiway(true);
+        qs.sort();
+        SortChecks.checkIdentity(array, "multiway");
+
+        array.close();
+
+    }
+}
@@ -0,0 +1,152 @@
+package com.airw.sorts;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import com.airw.arrays.EmptyCacheArray;
+import com.airw.arrays.FileCacheArray;
+import com.airw.arrays.IntCacheArray;
+import com.airw.arrays.LongCacheArray;
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheIntegerFactory;
+import com.airw.framework.CacheInteger;
+import com.airw.framework.CacheLong;
+import com.airw.framework.ListRankNode;
+import com.airw.framework.ListRankNodeFactory;
+
+public class RadixSortTest {
+
+    private static int fileSize = 1001;
+    private static int blockSize = 20;
+    private static int numBlocksInCache = 20;
+
+    public static void main(String[] args) throws IOException {
+
+        ArrayList<Integer> perm = new ArrayList<Integer>();
+        for (int i = 0; i < fileSize; i++) {
+            perm.add(i);
+        }
+        Collections.shuffle(perm);
+        
+        File testFile = new File("testRadixSort.txt");
+        BufferedWriter bw = new BufferedWriter(new FileWriter(testFile));
+        for (int i = 0; i < fileSize; i++) {
+            bw.write("" + perm.get(i));
+            bw.newLine();
+        }
+        bw.close();
+        
+        LRUCache lru = new LRUCache(blockSize, numBlocksInCache, 5);
+        CacheIntegerFactory cif = new CacheIntegerFactory();
+        CacheArray<CacheInteger> array = new FileCacheArray<CacheInteger>(
+                cif, testFile.getAbsolutePath(), lru);
+        new RadixSort<CacheInteger>(array).sort();
+        SortChecks.checkIdentity(array, "permutation");
+        array.close();
+
+        Random gen = new Random(1);
+        int n = 10 * fileSize;
+
+        // Signed ints, including both extremes, so the sign bit flip of the
+        // top digit is exercised.
+        IntCacheArray ints = new IntCacheArray(n, lru);
+        int[] intRef = new int[n];
+        for (int i = 0; i < n; i++) {
+            intRef[i] = i == 0 ? Integer.MIN_VALUE : i == 1 ? Integer.MAX_VALUE
+                    : gen.nextInt();
+            ints.setInt(i, intRef[i]);
+        }
+        new RadixSort<CacheInteger>(ints).sort();
+        Arrays.sort(intRef);
+        for (int i = 0; i < n; i++) {
+            SortChecks.check(ints.getInt(i) == intRef[i], "ints: wrong value at " + i);
+        }
+        ints.close();
+
+        // Signed longs of mixed magnitudes.
+        LongCacheArray longs = new LongCacheArray(n, lru);
+        long[] longRef = new long[n];
+        for (int i = 0; i < n; i++) {
+            longRef[i] = gen.nextLong() >> gen.nextInt(64);
+            longs.setLong(i, longRef[i]);
+        }
+        new RadixSort<CacheLong>(longs).sort();
+        Arrays.sort(longRef);
+        for (int i = 0; i < n; i++) {
+            SortChecks.check(longs.getLong(i) == longRef[i], "longs: wrong value at " + i);
+        }
+        longs.close();
+
+        // Sorting on the high four bytes only keeps the low four bytes, here
+        // the original index, in order for equal keys.
+        LongCacheArray pairs = new LongCacheArray(n, lru);
+        for (int i = 0; i < n; i++) {
+            long key = gen.nextInt(64) - 32;
+            pairs.setLong(i, (key << 32) | i);
+        }
+        RadixSort<CacheLong> partial = new RadixSort<CacheLong>(pairs, 4);
+        partial.sort();
+        SortChecks.check(partial.getNumPasses() <= 4, "partial key: "
+                + partial.getNumPasses() + " passes over a 4 byte key");
+        for (int i = 1; i < n; i++) {
+            long a = pairs.getLong(i - 1);
+            long b = pairs.getLong(i);
+            SortChecks.check((a >> 32) < (b >> 32)
+                    || ((a >> 32) == (b >> 32) && (int) a < (int) b),
+                    "partial key: not stable at " + i);
+        }
+        pairs.close();
+
+        // Only the lowest byte varies, so the other three passes are skipped,
+        // and a constant array needs no pass at all.
+        EmptyCacheArray<CacheInteger> bytes = new EmptyCacheArray<CacheInteger>(
+                cif, n, lru);
+        EmptyCacheArray<CacheInteger> constant = new EmptyCacheArray<CacheInteger>(
+                cif, n, lru);
+        for (int i = 0; i < n; i++) {
+            bytes.set(i, new CacheInteger(gen.nextInt(256)));
+            constant.set(i, new CacheInteger(-5));
+        }
+        RadixSort<CacheInteger> byteSort = new RadixSort<CacheInteger>(bytes);
+        byteSort.sort();
+        SortChecks.checkSorted(bytes, cif.getBasicComparator(), "one byte");
+        SortChecks.check(byteSort.getNumPasses() == 1, "one byte: "
+                + byteSort.getNumPasses() + " passes");
+        RadixSort<CacheInteger> constantSort = new RadixSort<CacheInteger>(constant);
+        constantSort.sort();
+        SortChecks.check(constantSort.getNumPasses() == 0, "constant: "
+                + constantSort.getNumPasses() + " passes");
+        bytes.close();
+        constant.close();
+
+        // Only int and long records can be sorted, by keys that fit them.
+        EmptyCacheArray<ListRankNode> nodes = new EmptyCacheArray<ListRankNode>(
+                new ListRankNodeFactory(), 3, lru);
+        SortChecks.check(rejects(nodes, nodes.getRecordWidth()), "accepted ListRankNode records");
+        nodes.close();
+        EmptyCacheArray<CacheInteger> small = new EmptyCacheArray<CacheInteger>(
+                cif, 3, lru);
+        SortChecks.check(rejects(small, 0), "accepted a 0 byte key");
+        SortChecks.check(rejects(small, 5), "accepted a 5 byte key on ints");
+        small.close();
+
+    }
+
+    private static <T extends CacheObject> boolean rejects(
+            CacheArray<T> array, int keyBytes) {
+        try {
+            new RadixSort<T>(array, keyBytes);
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+}
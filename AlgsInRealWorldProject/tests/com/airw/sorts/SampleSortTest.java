@@ -0,0 +1,90 @@
+package com.airw.sorts;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.airw.arrays.FileCacheArray;
+import com.airw.arrays.IntCacheArray;
+import com.airw.cache.CacheArray;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheIntegerFactory;
+import com.airw.framework.CacheInteger;
+
+public class SampleSortTest {
+
+    private static int fileSize = 1001;
+    private static int blockSize = 20;
+    private static int numBlocksInCache = 20;
+
+    public static void main(String[] args) throws IOException {
+
+        ArrayList<Integer> perm = new ArrayList<Integer>();
+        for (int i = 0; i < fileSize; i++) {
+            perm.add(i);
+        }
+        Collections.shuffle(perm);
+        
+        File testFile = new File("testSampleSort.txt");
+        FileWriter fw = new FileWriter(testFile);
+        BufferedWriter bw = new BufferedWriter(fw);
+        
+        for (int i = 0; i < fileSize; i++) {
+            bw.write("" + perm.get(i));
+            bw.newLine();
+        }
+        bw.close();
+        
+        LRUCache lru = new LRUCache(blockSize, numBlocksInCache, 5);
+        CacheIntegerFactory cif = new CacheIntegerFactory();
+        CacheArray<CacheInteger> array = new FileCacheArray<CacheInteger>(
+                cif, testFile.getAbsolutePath(), lru);
+
+        SampleSort<CacheInteger> ss = new SampleSort<CacheInteger>(array, cif.getBasicComparator());
+
+        ss.sort();
+        SortChecks.checkIdentity(array, "permutation");
+        
+        array.close();
+
+        // Inputs where splitters repeat, so records land in the buckets of
+        // records equal to a splitter. Several times the cache, so ranges are
+        // distributed more than once.
+        int n = 10 * fileSize;
+        Random gen = new Random(1);
+        List<Integer> skewed = new ArrayList<Integer>(n);
+        List<Integer> equal = new ArrayList<Integer>(n);
+        for (int i = 0; i < n; i++) {
+            // Nine records in ten are 0, the rest spread out.
+            skewed.add(gen.nextInt(10) == 0 ? gen.nextInt(1000) - 500 : 0);
+            equal.add(7);
+        }
+        sortAndCheck(skewed, lru, "skewed");
+        sortAndCheck(equal, lru, "all equal");
+
+    }
+
+    private static void sortAndCheck(List<Integer> values, LRUCache lru,
+            String what) throws IOException {
+        CacheIntegerFactory cif = new CacheIntegerFactory();
+        IntCacheArray array = new IntCacheArray(values.size(), lru);
+        for (int i = 0; i < values.size(); i++) {
+            array.setInt(i, values.get(i));
+        }
+
+        new SampleSort<CacheInteger>(array, cif.getBasicComparator()).sort();
+
+        List<CacheInteger> expected = new ArrayList<CacheInteger>(values.size());
+        for (int v : values) {
+            expected.add(new CacheInteger(v));
+        }
+        Collections.sort(expected, cif.getBasicComparator());
+        SortChecks.checkContents(array, expected, cif.getBasicComparator(), what);
+        array.close();
+    }
+}
@@ -0,0 +1,101 @@
+package com.airw.sorts;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.airw.arrays.FileCacheArray;
+import com.airw.cache.CacheArray;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheIntegerFactory;
+import com.airw.framework.CacheInteger;
+
+public class SelectionTest {
+
+    private static int fileSize = 1001;
+    private static int blockSize = 20;
+    private static int numBlocksInCache = 5;
+
+    public static void main(String[] args) throws IOException {
+
+        ArrayList<Integer> perm = new ArrayList<Integer>();
+        for (int i = 0; i < fileSize; i++) {
+            perm.add(i);
+        }
+        Collections.shuffle(perm);
+        
+        File testFile = new File("testSelection.txt");
+        FileWriter fw = new FileWriter(testFile);
+        BufferedWriter bw = new BufferedWriter(fw);
+        
+        for (int i = 0; i < fileSize; i++) {
+            bw.write("" + perm.get(i));
+            bw.newLine();
+        }
+        bw.close();
+        
+        LRUCache lru = new LRUCache(blockSize, numBlocksInCache, 5);
+        CacheIntegerFactory cif = new CacheIntegerFactory();
+        CacheArray<CacheInteger> array = new FileCacheArray<CacheInteger>(
+                cif, testFile.getAbsolutePath(), lru);
+
+        Selection<CacheInteger> sel = new Selection<CacheInteger>(array, cif.getBasicComparator());
+
+        // The array holds a permutation of 0..fileSize - 1, so the record of
+        // rank r is r.
+        List<CacheInteger> top = sel.topK(5);
+        SortChecks.check(top.size() == 5, "topK(5) returned " + top.size());
+        for (int i = 0; i < top.size(); i++) {
+            SortChecks.check(top.get(i).valueOf() == i, "topK(5) returned "
+                    + top.get(i).valueOf() + " at " + i);
+        }
+        SortChecks.check(sel.topK(0).isEmpty(), "topK(0) is not empty");
+        List<CacheInteger> all = sel.topK(fileSize + 10);
+        SortChecks.check(all.size() == fileSize, "topK(n + 10) returned "
+                + all.size());
+        for (int i = 0; i < all.size(); i++) {
+            SortChecks.check(all.get(i).valueOf() == i,
+                    "topK(n + 10) out of order at " + i);
+        }
+
+        // A sample of s records puts each quantile within about n / sqrt(s)
+        // ranks of its target. Allow three times that.
+        int sampleSize = 200;
+        double slack = 3 * fileSize / Math.sqrt(sampleSize);
+        List<CacheInteger> quartiles = sel.approximateQuantiles(4, sampleSize);
+        SortChecks.check(quartiles.size() == 3, "got " + quartiles.size()
+                + " quartiles");
+        for (int i = 0; i < quartiles.size(); i++) {
+            double target = (i + 1) * fileSize / 4.0;
+            SortChecks.check(Math.abs(quartiles.get(i).valueOf() - target) <= slack,
+                    "quartile " + (i + 1) + " is " + quartiles.get(i).valueOf());
+        }
+
+        for (long rank : new long[] { fileSize / 2, 900, 0, fileSize - 1 }) {
+            SortChecks.check(sel.select(rank).valueOf() == rank, "select("
+                    + rank + ") returned the wrong record");
+            SortChecks.check(array.get(rank).valueOf() == rank, "select("
+                    + rank + ") did not place the record at its rank");
+            for (long i = 0; i < fileSize; i++) {
+                int v = array.get(i).valueOf();
+                SortChecks.check(i < rank ? v < rank : v >= rank, "select("
+                        + rank + ") left " + v + " at " + i);
+            }
+        }
+
+        boolean thrown = false;
+        try {
+            sel.select(fileSize);
+        } catch (IndexOutOfBoundsException e) {
+            thrown = true;
+        }
+        SortChecks.check(thrown, "select(n) did not throw");
+
+        array.close();
+
+    }
+}
@@ -0,0 +1,72 @@
+package com.airw.sorts;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+import com.airw.framework.CacheInteger;
+
+/**
+ * Checks shared by the sort tests. Every check throws an
+ * IllegalStateException naming the first offending index.
+ * 
+ */
+final class SortChecks {
+
+    private SortChecks() {
+    }
+
+    static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException(what);
+        }
+    }
+
+    /**
+     * Checks that no two neighbouring records are out of order.
+     */
+    static <T extends CacheObject> void checkSorted(CacheArray<T> array,
+            Comparator<T> comp, String what) throws IOException {
+        for (long i = 1; i < array.size(); i++) {
+            if (comp.compare(array.get(i - 1), array.get(i)) > 0) {
+                throw new IllegalStateException(what + ": not sorted at " + i);
+            }
+        }
+    }
+
+    /**
+     * Checks that the array holds exactly the expected records, in order,
+     * where same decides whether two records match.
+     */
+    static <T extends CacheObject> void checkContents(CacheArray<T> array,
+            List<T> expected, Comparator<T> same, String what)
+            throws IOException {
+        if (array.size() != expected.size()) {
+            throw new IllegalStateException(what + ": " + array.size()
+                    + " records, expected " + expected.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (same.compare(array.get(i), expected.get(i)) != 0) {
+                throw new IllegalStateException(what + ": found "
+                        + array.get(i).myToString() + " at " + i
+                        + ", expected " + expected.get(i).myToString());
+            }
+        }
+    }
+
+    /**
+     * Checks that a sorted permutation of 0 to n - 1 holds i at index i.
+     */
+    static void checkIdentity(CacheArray<CacheInteger> array, String what)
+            throws IOException {
+        for (long i = 0; i < array.size(); i++) {
+            if (array.get(i).valueOf() != i) {
+                throw new IllegalStateException(what + ": found "
+                        + array.get(i).valueOf() + " at " + i);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.airw.tools;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import com.airw.arrays.IntCacheArray;
+import com.airw.cache.LRUCache;
+
+/**
+ * Micro benchmark for the hit path of the cache. Reads an IntCacheArray that
+ * fits entirely in cache and reports the time and heap allocation per access.
+ * 
+ */
+public class CacheBenchmark {
+
+    private static int blockSize = 64;
+    private static int numBlocksInCache = 1024;
+    private static int warmupRounds = 5;
+    private static int rounds = 10;
+    private static int accessesPerRound = 10000000;
+
+    public static void main(String[] args) throws IOException {
+        LRUCache lru = new LRUCache(blockSize, numBlocksInCache, 16);
+        long size = (long) blockSize * numBlocksInCache;
+        IntCacheArray array = new IntCacheArray(size, lru);
+        for (long i = 0; i < size; i++) {
+            array.setInt(i, (int) i);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long sink = 0;
+        for (int r = 0; r < warmupRounds + rounds; r++) {
+            long allocBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            // Stride through blocks so every access changes the LRU order.
+            long index = 0;
+            for (int i = 0; i < accessesPerRound; i++) {
+                sink += array.getInt(index);
+                index = (index + blockSize + 1) % size;
+            }
+            long elapsed = System.nanoTime() - start;
+            long allocated = threads.getThreadAllocatedBytes(threadId)
+                    - allocBefore;
+            if (r >= warmupRounds) {
+                System.out.println("round " + (r - warmupRounds) + ": "
+                        + ((double) elapsed / accessesPerRound) + " ns/op, "
+                        + ((double) allocated / accessesPerRound)
+                        + " bytes/op");
+            }
+        }
+        System.out.println("misses " + lru.getMisses() + " (checksum " + sink
+                + ")");
+        array.close();
+    }
+
+}
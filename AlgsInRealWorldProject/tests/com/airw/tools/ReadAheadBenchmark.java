@@ -0,0 +1,57 @@
+package com.airw.tools;
+
+import java.io.IOException;
+import java.util.Random;
+
+import com.airw.arrays.IntCacheArray;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheInteger;
+import com.airw.framework.CacheIntegerFactory;
+import com.airw.sorts.IOEfficientMergeSort;
+
+/**
+ * Sorts the same array with and without read-ahead and reports the wall
+ * clock time, the misses and how many misses read-ahead served.
+ * 
+ */
+public class ReadAheadBenchmark {
+
+    private static int blockSize = 64;
+    private static int numBlocksInCache = 16;
+    private static int blocksInFile = 16;
+    private static int readAheadDepth = 4;
+    private static int n = 200000;
+
+    public static void main(String[] args) throws IOException {
+        for (int depth : new int[] { 0, readAheadDepth }) {
+            LRUCache lru = new LRUCache(blockSize, numBlocksInCache,
+                    blocksInFile);
+            if (depth > 0) {
+                lru.enableReadAhead(depth);
+            }
+            IntCacheArray array = new IntCacheArray(n, lru);
+            Random random = new Random(1);
+            for (long i = 0; i < n; i++) {
+                array.setInt(i, random.nextInt());
+            }
+
+            long start = System.nanoTime();
+            new IOEfficientMergeSort<CacheInteger>(array,
+                    new CacheIntegerFactory().getBasicComparator()).sort();
+            long elapsed = System.nanoTime() - start;
+
+            for (long i = 1; i < n; i++) {
+                if (array.getInt(i - 1) > array.getInt(i)) {
+                    throw new IllegalStateException("Not sorted at " + i);
+                }
+            }
+            System.out.println("read-ahead " + depth + ": " + elapsed
+                    / 1000000 + " ms, misses " + lru.getMisses()
+                    + ", prefetched " + lru.getPrefetchIssued()
+                    + ", prefetch hits " + lru.getPrefetchHits());
+            array.close();
+            lru.close();
+        }
+    }
+
+}
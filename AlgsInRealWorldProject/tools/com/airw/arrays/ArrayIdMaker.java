@@ -1,12 +1,12 @@
-package com.airw.arrays;
-
-public class ArrayIdMaker {
-    
-    static int id = -1;
-
-    public static synchronized int nextID() {
-        id++;
-        return id;
-    }
-
-}
+package com.airw.arrays;
+
+public class ArrayIdMaker {
+    
+    static int id = -1;
+
+    public static synchronized int nextID() {
+        id++;
+        return id;
+    }
+
+}
@@ -1,68 +1,70 @@
-package com.airw.arrays;
-
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-
-import com.airw.cache.CacheArray;
-import com.airw.cache.CacheObject;
-import com.airw.cache.LRUCache;
-import com.airw.framework.CacheObjectFactory;
-
-public class EmptyCacheArray<T extends CacheObject> extends CacheArray<T> {
-
-    private String baseFileName;
-    private long size;
-
-    public EmptyCacheArray(CacheObjectFactory<T> objectFact, long size,
-            LRUCache cache) throws IOException {
-        super(objectFact, cache);
-        baseFileName = "EMPTY_" + getId();
-        this.size = size;
-        createAllSubFiles();
-    }
-
-    @Override
-    protected void createAllSubFiles() throws IOException {
-        long numBlocksPerSubFile = cache.numBlocksPerSubFile();
-        long blockSize = cache.getBlockSize();
-        for (long i = 0; i < size; i += (numBlocksPerSubFile * blockSize)) {
-            String subFileName = baseFileName + "_"
-                     + (i / (numBlocksPerSubFile * blockSize)) + ".txt";
-            FileWriter fw = new FileWriter(subFileName);
-            BufferedWriter bw = new BufferedWriter(fw);
-            for (long j = i; j < Math.min(size, i
-                    + (numBlocksPerSubFile * blockSize)); j++) {
-                bw.write("0");
-                bw.newLine();
-            }
-            bw.close();
-        }
-    }
-
-    @Override
-    public void close() throws IOException {
-        cache.dump(this);
-        long numBlocksPerSubFile = cache.numBlocksPerSubFile();
-        long blockSize = cache.getBlockSize();
-        for (long i = 0; i < size; i += (numBlocksPerSubFile * blockSize)) {
-            String subFileName = baseFileName + "_"
-                    + (i / (numBlocksPerSubFile * blockSize)) + ".txt";
-            File f = new File(subFileName);
-            f.delete();
-        }
-        cache.removeCacheArray(this);
-    }
-
-    @Override
-    public String getBaseFileName() {
-        return baseFileName;
-    }
-
-    @Override
-    public long size() {
-        return size;
-    }
-
-}
+package com.airw.arrays;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheObjectFactory;
+
+public class EmptyCacheArray<T extends CacheObject> extends CacheArray<T> {
+
+    private String baseFileName;
+    private long size;
+
+    public EmptyCacheArray(CacheObjectFactory<T> objectFact, long size,
+            LRUCache cache) throws IOException {
+        this(objectFact, size, cache, "EMPTY_");
+    }
+
+    protected EmptyCacheArray(CacheObjectFactory<T> objectFact, long size,
+            LRUCache cache, String prefix) throws IOException {
+        super(objectFact, cache);
+        baseFileName = prefix + getId();
+        this.size = size;
+        createAllSubFiles();
+    }
+
+    @Override
+    protected void createAllSubFiles() throws IOException {
+        long numBlocksPerSubFile = cache.numBlocksPerSubFile();
+        long blockSize = cache.getBlockSize();
+        for (long i = 0; i < size; i += (numBlocksPerSubFile * blockSize)) {
+            String subFileName = getSubFileName(i
+                    / (numBlocksPerSubFile * blockSize));
+            long numRecords = Math.min(size - i, numBlocksPerSubFile
+                    * blockSize);
+            // Every record starts out as all zero bytes.
+            RandomAccessFile raf = new RandomAccessFile(subFileName, "rw");
+            raf.setLength(numRecords * getRecordWidth());
+            raf.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.dump(this);
+        long numBlocksPerSubFile = cache.numBlocksPerSubFile();
+        long blockSize = cache.getBlockSize();
+        for (long i = 0; i < size; i += (numBlocksPerSubFile * blockSize)) {
+            String subFileName = getSubFileName(i
+                    / (numBlocksPerSubFile * blockSize));
+            File f = new File(subFileName);
+            f.delete();
+        }
+        cache.removeCacheArray(this);
+    }
+
+    @Override
+    public String getBaseFileName() {
+        return baseFileName;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+}
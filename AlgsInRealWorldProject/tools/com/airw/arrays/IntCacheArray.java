@@ -0,0 +1,63 @@
+package com.airw.arrays;
+
+import java.io.IOException;
+
+import com.airw.cache.CacheBlock;
+import com.airw.cache.IntBlock;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheInteger;
+import com.airw.framework.CacheIntegerFactory;
+
+/**
+ * A temporary array of ints held in IntBlocks. getInt and setInt work on the
+ * primitive values directly, get and set still hand out CacheIntegers so the
+ * array can be passed to the sorts.
+ *
+ */
+public class IntCacheArray extends EmptyCacheArray<CacheInteger> {
+
+    public IntCacheArray(long size, LRUCache cache) throws IOException {
+        super(new CacheIntegerFactory(), size, cache, "INT_");
+    }
+
+    public int getInt(long index) throws IOException {
+        checkIndex(index);
+        IntBlock block = (IntBlock) pinBlock(index, false);
+        try {
+            return block.get(indexInBlock(index));
+        } finally {
+            cache.unpinBlock(block);
+        }
+    }
+
+    public void setInt(long index, int v) throws IOException {
+        checkIndex(index);
+        IntBlock block = (IntBlock) pinBlock(index, true);
+        try {
+            block.set(indexInBlock(index), v);
+        } finally {
+            cache.unpinBlock(block);
+        }
+    }
+
+    @Override
+    public CacheInteger get(long index) throws IOException {
+        return new CacheInteger(getInt(index));
+    }
+
+    @Override
+    public void set(long index, CacheInteger v) throws IOException {
+        setInt(index, v.valueOf());
+    }
+
+    @Override
+    public int getRecordWidth() {
+        return IntBlock.RECORD_WIDTH;
+    }
+
+    @Override
+    public CacheBlock newBlock(int capacity) {
+        return new IntBlock(capacity);
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.airw.arrays;
+
+import java.io.IOException;
+
+import com.airw.cache.CacheBlock;
+import com.airw.cache.LongBlock;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheLong;
+import com.airw.framework.CacheLongFactory;
+
+/**
+ * A temporary array of longs held in LongBlocks. getLong and setLong work
+ * on the primitive values directly, get and set still hand out CacheLongs so
+ * the array can be passed to the sorts.
+ *
+ */
+public class LongCacheArray extends EmptyCacheArray<CacheLong> {
+
+    public LongCacheArray(long size, LRUCache cache) throws IOException {
+        super(new CacheLongFactory(), size, cache, "LONG_");
+    }
+
+    public long getLong(long index) throws IOException {
+        checkIndex(index);
+        LongBlock block = (LongBlock) pinBlock(index, false);
+        try {
+            return block.get(indexInBlock(index));
+        } finally {
+            cache.unpinBlock(block);
+        }
+    }
+
+    public void setLong(long index, long v) throws IOException {
+        checkIndex(index);
+        LongBlock block = (LongBlock) pinBlock(index, true);
+        try {
+            block.set(indexInBlock(index), v);
+        } finally {
+            cache.unpinBlock(block);
+        }
+    }
+
+    @Override
+    public CacheLong get(long index) throws IOException {
+        return new CacheLong(getLong(index));
+    }
+
+    @Override
+    public void set(long index, CacheLong v) throws IOException {
+        setLong(index, v.valueOf());
+    }
+
+    @Override
+    public int getRecordWidth() {
+        return LongBlock.RECORD_WIDTH;
+    }
+
+    @Override
+    public CacheBlock newBlock(int capacity) {
+        return new LongBlock(capacity);
+    }
+
+}
@@ -0,0 +1,218 @@
+package com.airw.arrays;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.airw.cache.CacheArray;
+import com.airw.cache.CacheObject;
+import com.airw.cache.LRUCache;
+import com.airw.framework.CacheObjectFactory;
+
+/**
+ * A CacheArray whose records are read and written straight through memory
+ * mapped windows of one binary backing file. Transfers are left to the OS
+ * page cache, so accesses bypass the LRUCache and do not show up in its hit
+ * and miss counters. Use FileCacheArray or EmptyCacheArray when the block
+ * transfers should be counted.
+ *
+ */
+public class MappedCacheArray<T extends CacheObject> extends CacheArray<T> {
+
+    // Largest window mapped at once, rounded down to whole records.
+    private static final long MAX_WINDOW_BYTES = 1L << 30;
+
+    private String baseFileName;
+    private long size;
+    private boolean fromTextFile;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private long recordsPerWindow;
+    private MappedByteBuffer[] windows;
+
+    /**
+     * Creates a mapped array of the given size with every record zeroed.
+     */
+    public MappedCacheArray(CacheObjectFactory<T> objectFact, long size,
+            LRUCache cache) throws IOException {
+        super(objectFact, cache);
+        baseFileName = "MAPPED_" + getId();
+        this.size = size;
+        this.fromTextFile = false;
+        createAllSubFiles();
+        mapFile();
+    }
+
+    /**
+     * Creates a mapped array from a text file with one record per line. The
+     * file is rewritten with the contents of the array on close.
+     */
+    public MappedCacheArray(CacheObjectFactory<T> objectFact, String fileName,
+            LRUCache cache) throws IOException {
+        super(objectFact, cache);
+        baseFileName = fileName.replace(".txt", "");
+        this.fromTextFile = true;
+
+        // Count the number of lines in the file.
+        LineNumberReader lnr = new LineNumberReader(new FileReader(new File(
+                fileName)));
+        lnr.skip(Long.MAX_VALUE);
+        size = lnr.getLineNumber();
+        lnr.close();
+
+        createAllSubFiles();
+        mapFile();
+
+        BufferedReader br = new BufferedReader(new FileReader(new File(
+                fileName)));
+        for (long i = 0; i < size; i++) {
+            set(i, getFactory().createCacheObject(br.readLine()));
+        }
+        br.close();
+    }
+
+    @Override
+    protected void createAllSubFiles() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(getMappedFileName(), "rw");
+        // Every record starts out as all zero bytes.
+        file.setLength(size * getRecordWidth());
+        file.close();
+    }
+
+    /**
+     * Maps every window up front. A mapping only reserves address space, and
+     * the windows are never changed afterwards, so threads sharing the array
+     * through a ConcurrentLRUCache need no locking to find them.
+     */
+    private void mapFile() throws IOException {
+        int recordWidth = getRecordWidth();
+        raf = new RandomAccessFile(getMappedFileName(), "rw");
+        channel = raf.getChannel();
+        recordsPerWindow = Math.max(1, MAX_WINDOW_BYTES / recordWidth);
+        int numWindows = (int) ((size + recordsPerWindow - 1)
+                / recordsPerWindow);
+        windows = new MappedByteBuffer[numWindows];
+        for (int w = 0; w < numWindows; w++) {
+            long firstRecord = w * recordsPerWindow;
+            long numRecords = Math.min(recordsPerWindow, size - firstRecord);
+            windows[w] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    firstRecord * recordWidth, numRecords * recordWidth);
+        }
+    }
+
+    /**
+     * Returns the window holding the given index.
+     */
+    private MappedByteBuffer window(long index) {
+        return windows[(int) (index / recordsPerWindow)];
+    }
+
+    @Override
+    public T get(long index) throws IOException {
+        if (index >= size()) {
+            throw new IndexOutOfBoundsException(
+                    "Attempted to access element out of bounds.");
+        }
+
+        int offset = (int) ((index % recordsPerWindow) * getRecordWidth());
+        return getFactory().createCacheObject(window(index), offset);
+    }
+
+    @Override
+    public void set(long index, T v) throws IOException {
+        if (index >= size()) {
+            throw new IndexOutOfBoundsException(
+                    "Attempted to access element out of bounds.");
+        }
+
+        int offset = (int) ((index % recordsPerWindow) * getRecordWidth());
+        v.write(window(index), offset);
+    }
+
+    @Override
+    public void readRange(long from, int count, ByteBuffer dst)
+            throws IOException {
+        checkRange(from, count);
+        int width = getRecordWidth();
+        long index = from;
+        long end = from + count;
+        while (index < end) {
+            int n = (int) Math.min(end - index, recordsPerWindow - index
+                    % recordsPerWindow);
+            int offset = (int) ((index % recordsPerWindow) * width);
+            ByteBuffer src = window(index).duplicate();
+            src.limit(offset + n * width);
+            src.position(offset);
+            dst.put(src);
+            index += n;
+        }
+    }
+
+    @Override
+    public void writeRange(long from, int count, ByteBuffer src)
+            throws IOException {
+        checkRange(from, count);
+        int width = getRecordWidth();
+        long index = from;
+        long end = from + count;
+        while (index < end) {
+            int n = (int) Math.min(end - index, recordsPerWindow - index
+                    % recordsPerWindow);
+            int offset = (int) ((index % recordsPerWindow) * width);
+            ByteBuffer dst = window(index).duplicate();
+            dst.position(offset);
+            ByteBuffer part = src.duplicate();
+            part.limit(part.position() + n * width);
+            dst.put(part);
+            src.position(part.position());
+            index += n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fromTextFile) {
+            writeTextFile();
+        }
+        for (MappedByteBuffer w : windows) {
+            w.force();
+        }
+        channel.close();
+        raf.close();
+        new File(getMappedFileName()).delete();
+        cache.removeCacheArray(this);
+    }
+
+    private void writeTextFile() throws IOException {
+        BufferedWriter bw = new BufferedWriter(new FileWriter(baseFileName
+                + ".txt"));
+        for (long i = 0; i < size; i++) {
+            bw.write(get(i).myToString());
+            bw.newLine();
+        }
+        bw.close();
+    }
+
+    private String getMappedFileName() {
+        return baseFileName + "_mapped.bin";
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public String getBaseFileName() {
+        return baseFileName;
+    }
+
+}
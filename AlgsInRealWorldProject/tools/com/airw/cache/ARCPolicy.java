@@ -0,0 +1,132 @@
+package com.airw.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Adaptive Replacement Cache of Megiddo and Modha. Resident blocks are split
+ * between T1 (seen once recently) and T2 (seen at least twice), and the keys
+ * of blocks evicted from each are remembered in the ghost lists B1 and B2. A
+ * miss that hits a ghost list moves the target size p of T1 towards the list
+ * that would have kept the block, so the cache adapts between recency and
+ * frequency without tuning.
+ *
+ */
+public class ARCPolicy implements EvictionPolicy {
+
+    private static final int NONE = 0;
+    private static final int T1 = 1;
+    private static final int T2 = 2;
+
+    private int capacity;
+    private SlotList t1;
+    private SlotList t2;
+    private int[] listOf;
+    private LinkedHashSet<Long> b1;
+    private LinkedHashSet<Long> b2;
+    private int p; // Target size of T1.
+    private boolean adapted; // p already adjusted for the pending insert.
+
+    public ARCPolicy(int capacity) {
+        this.capacity = capacity;
+        t1 = new SlotList(capacity);
+        t2 = new SlotList(capacity);
+        listOf = new int[capacity];
+        b1 = new LinkedHashSet<Long>();
+        b2 = new LinkedHashSet<Long>();
+        p = 0;
+        adapted = false;
+    }
+
+    @Override
+    public void onHit(int slot) {
+        if (listOf[slot] == T1) {
+            t1.remove(slot);
+            t2.addFirst(slot);
+            listOf[slot] = T2;
+        } else {
+            t2.moveToFront(slot);
+        }
+    }
+
+    @Override
+    public void onInsert(int slot, long key) {
+        if (!adapted) {
+            adapt(key);
+        }
+        adapted = false;
+        if (b1.remove(key) || b2.remove(key)) {
+            t2.addFirst(slot);
+            listOf[slot] = T2;
+        } else {
+            t1.addFirst(slot);
+            listOf[slot] = T1;
+        }
+        trimGhosts();
+    }
+
+    @Override
+    public void onRemove(int slot, long key, boolean evicted) {
+        if (listOf[slot] == T1) {
+            t1.remove(slot);
+            if (evicted) {
+                b1.add(key);
+            }
+        } else {
+            t2.remove(slot);
+            if (evicted) {
+                b2.add(key);
+            }
+        }
+        listOf[slot] = NONE;
+        trimGhosts();
+    }
+
+    @Override
+    public int selectVictim(long incomingKey, Slots slots) {
+        adapt(incomingKey);
+        adapted = true;
+
+        // REPLACE from the paper: take the LRU end of T1 while T1 is above
+        // its target, otherwise the LRU end of T2.
+        boolean fromT1 = !t1.isEmpty()
+                && (t1.size() > p || (b2.contains(incomingKey) && t1.size() == p));
+        SlotList first = fromT1 ? t1 : t2;
+        SlotList second = fromT1 ? t2 : t1;
+        int slot = first.lastUnpinned(slots);
+        if (slot == SlotList.NIL) {
+            slot = second.lastUnpinned(slots);
+        }
+        if (slot == SlotList.NIL) {
+            throw new IllegalStateException("All cache blocks are pinned.");
+        }
+        return slot;
+    }
+
+    private void adapt(long key) {
+        if (b1.contains(key)) {
+            p = Math.min(capacity, p + Math.max(b2.size() / b1.size(), 1));
+        } else if (b2.contains(key)) {
+            p = Math.max(0, p - Math.max(b1.size() / b2.size(), 1));
+        }
+    }
+
+    /**
+     * Keeps |T1| + |B1| <= c and the whole directory within 2c.
+     */
+    private void trimGhosts() {
+        while (!b1.isEmpty() && t1.size() + b1.size() > capacity) {
+            removeOldest(b1);
+        }
+        while (t1.size() + t2.size() + b1.size() + b2.size() > 2 * capacity) {
+            removeOldest(b2.isEmpty() ? b1 : b2);
+        }
+    }
+
+    private static void removeOldest(LinkedHashSet<Long> ghosts) {
+        Iterator<Long> oldest = ghosts.iterator();
+        oldest.next();
+        oldest.remove();
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.airw.cache;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The arrays known to a cache, indexed by their ArrayIdMaker id. Arrays are
+ * only weakly referenced, so an array that is dropped without close() can
+ * still be collected and its entry is purged on a later register. All
+ * methods are synchronized so one registry can be shared by the segments of a
+ * ConcurrentLRUCache.
+ *
+ */
+public class ArrayRegistry {
+
+    private Map<Integer, ArrayRef> arrays;
+    private ReferenceQueue<CacheArray<?>> collected;
+
+    public ArrayRegistry() {
+        arrays = new HashMap<Integer, ArrayRef>();
+        collected = new ReferenceQueue<CacheArray<?>>();
+    }
+
+    public synchronized void register(CacheArray<?> ca) {
+        purge();
+        arrays.put(ca.getId(), new ArrayRef(ca, collected));
+    }
+
+    public synchronized void unregister(CacheArray<?> ca) {
+        ArrayRef ref = arrays.remove(ca.getId());
+        if (ref != null) {
+            ref.clear();
+        }
+    }
+
+    /**
+     * @return The array with the given id or null if it was unregistered or
+     *         has been garbage collected.
+     */
+    public synchronized CacheArray<?> lookup(int arrayId) {
+        ArrayRef ref = arrays.get(arrayId);
+        return ref == null ? null : ref.get();
+    }
+
+    /**
+     * @return The arrays that are still registered and reachable.
+     */
+    public synchronized List<CacheArray<?>> liveArrays() {
+        List<CacheArray<?>> live = new ArrayList<CacheArray<?>>();
+        for (ArrayRef ref : arrays.values()) {
+            CacheArray<?> ca = ref.get();
+            if (ca != null) {
+                live.add(ca);
+            }
+        }
+        return live;
+    }
+
+    public synchronized int size() {
+        purge();
+        return arrays.size();
+    }
+
+    // Drops the entries of arrays that have been garbage collected.
+    private void purge() {
+        ArrayRef ref;
+        while ((ref = (ArrayRef) collected.poll()) != null) {
+            if (arrays.get(ref.arrayId) == ref) {
+                arrays.remove(ref.arrayId);
+            }
+        }
+    }
+
+    private static class ArrayRef extends WeakReference<CacheArray<?>> {
+
+        private final int arrayId;
+
+        ArrayRef(CacheArray<?> ca, ReferenceQueue<CacheArray<?>> queue) {
+            super(ca, queue);
+            this.arrayId = ca.getId();
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.airw.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Binary, fixed-record storage for the sub-files backing a CacheArray. Every
+ * record of an array occupies exactly getRecordWidth() bytes, so a block is
+ * found with a single seek instead of scanning the sub-file line by line.
+ *
+ */
+public class BlockStore {
+
+    private int blockSize; // Number of entries in a block.
+    private int numBlocksPerSubFile;
+
+    public BlockStore(int blockSize, int numBlocksPerSubFile) {
+        this.blockSize = blockSize;
+        this.numBlocksPerSubFile = numBlocksPerSubFile;
+    }
+
+    /**
+     * Reads a block with one positioned read.
+     *
+     * @param ca
+     *            The array owning the block.
+     * @param blockNumber
+     *            The index of the block to read.
+     * @return The block, created by ca.newBlock(). The last block of an array
+     *         may hold fewer than blockSize records.
+     * @throws IOException
+     */
+    public CacheBlock readBlock(CacheArray<?> ca, long blockNumber)
+            throws IOException {
+        int recordWidth = ca.getRecordWidth();
+        RandomAccessFile raf = new RandomAccessFile(subFile(ca, blockNumber),
+                "r");
+        byte[] buf;
+        try {
+            long offset = blockOffset(ca, blockNumber);
+            long available = Math.max(0, raf.length() - offset);
+            int numRecords = (int) Math.min(blockSize, available
+                    / recordWidth);
+            buf = new byte[numRecords * recordWidth];
+            raf.seek(offset);
+            raf.readFully(buf);
+        } finally {
+            raf.close();
+        }
+
+        CacheBlock block = ca.newBlock(blockSize);
+        block.load(ByteBuffer.wrap(buf), buf.length / recordWidth);
+        return block;
+    }
+
+    /**
+     * Writes a block back to its sub-file. Only the byte range of the block
+     * is overwritten, the rest of the sub-file is left untouched.
+     *
+     * @param ca
+     *            The array owning the block.
+     * @param blockNumber
+     *            The index of the block to write.
+     * @param block
+     *            The block to write.
+     * @throws IOException
+     */
+    public void writeBlock(CacheArray<?> ca, long blockNumber,
+            CacheBlock block) throws IOException {
+        writeBuffer(ca, blockNumber, encode(ca, block));
+    }
+
+    /**
+     * @return The records of the block in their on-disk form, ready to be
+     *         read.
+     */
+    public ByteBuffer encode(CacheArray<?> ca, CacheBlock block) {
+        ByteBuffer buf = ByteBuffer.allocate(block.size()
+                * ca.getRecordWidth());
+        block.store(buf);
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Writes the encoded records of a block back to its sub-file.
+     * 
+     * @param buf
+     *            The records, from position to limit.
+     * @throws IOException
+     */
+    public void writeBuffer(CacheArray<?> ca, long blockNumber, ByteBuffer buf)
+            throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(subFile(ca, blockNumber),
+                "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            long offset = blockOffset(ca, blockNumber);
+            while (buf.hasRemaining()) {
+                offset += channel.write(buf, offset);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    private File subFile(CacheArray<?> ca, long blockNumber) {
+        return new File(ca.getSubFileName(blockNumber / numBlocksPerSubFile));
+    }
+
+    private long blockOffset(CacheArray<?> ca, long blockNumber) {
+        return (blockNumber % numBlocksPerSubFile) * blockSize
+                * ca.getRecordWidth();
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.airw.cache;
+
+/**
+ * Open addressing hash table from packed CacheKeys to cache slot indices.
+ * Uses linear probing with backward-shift deletion, so lookups, inserts and
+ * removals never allocate.
+ *
+ */
+public class BlockTable {
+
+    private static final int FREE = -1;
+
+    private long[] keys;
+    private int[] slots;
+    private int mask;
+
+    /**
+     * @param maxEntries
+     *            The most entries the table will ever hold.
+     */
+    public BlockTable(int maxEntries) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1;
+        keys = new long[capacity];
+        slots = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = FREE;
+        }
+    }
+
+    /**
+     * @return The slot stored for the key or -1 if there is none.
+     */
+    public int get(long key) {
+        int i = indexFor(key);
+        while (slots[i] != FREE) {
+            if (keys[i] == key) {
+                return slots[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return FREE;
+    }
+
+    /**
+     * Stores the slot for a key that is not in the table yet.
+     */
+    public void put(long key, int slot) {
+        int i = indexFor(key);
+        while (slots[i] != FREE) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        slots[i] = slot;
+    }
+
+    public void remove(long key) {
+        int i = indexFor(key);
+        while (slots[i] != FREE) {
+            if (keys[i] == key) {
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        if (slots[i] == FREE) {
+            return;
+        }
+        // Shift later entries of the probe sequence back into the hole.
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (slots[j] != FREE) {
+            int home = indexFor(keys[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                slots[hole] = slots[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        slots[hole] = FREE;
+    }
+
+    private int indexFor(long key) {
+        return CacheKey.hash(key) & mask;
+    }
+
+}
@@ -1,67 +1,260 @@
-package com.airw.cache;
-
-import java.io.IOException;
-
-import com.airw.arrays.ArrayIdMaker;
-import com.airw.framework.CacheObjectFactory;
-
-public abstract class CacheArray<T extends CacheObject> {
-
-    private CacheObjectFactory<T> objectFact;
-    protected LRUCache cache;
-    private int arrayId;
-
-    public CacheArray(CacheObjectFactory<T> objectFact, LRUCache cache)
-            throws IOException {
-        this.objectFact = objectFact;
-        this.cache = cache;
-        this.arrayId = ArrayIdMaker.nextID();
-        cache.addCacheArray(this);
-    }
-
-    protected abstract void createAllSubFiles() throws IOException;
-
-    public abstract void close() throws IOException;
-
-    /**
-     * Gets an element at a given index.
-     * 
-     * @param index
-     *            The element index to access.
-     * @return The element at this index.
-     * @throws IOException
-     */
-    public T get(long index) throws IOException {
-        if (index >= size()) {
-            throw new IndexOutOfBoundsException(
-                    "Attempted to access element out of bounds.");
-        }
-
-        return objectFact.createCacheObject(cache.get(index, this));
-    }
-
-    public void set(long index, T v) throws IOException {
-        if (index >= size()) {
-            throw new IndexOutOfBoundsException(
-                    "Attempted to access element out of bounds.");
-        }
-
-        cache.set(index, v.toString(), this);
-    }
-
-    public int getId() {
-        return arrayId;
-    }
-    
-    public CacheObjectFactory<T> getFactory() {
-    	return objectFact;
-    }
-
-    public abstract long size();
-
-    public abstract String getBaseFileName();
-
-    public LRUCache getCache() {
-        return cache;
-    }
-}
+package com.airw.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.airw.arrays.ArrayIdMaker;
+import com.airw.framework.CacheObjectFactory;
+
+public abstract class CacheArray<T extends CacheObject> {
+
+    private CacheObjectFactory<T> objectFact;
+    protected LRUCache cache;
+    private int arrayId;
+
+    public CacheArray(CacheObjectFactory<T> objectFact, LRUCache cache)
+            throws IOException {
+        this.objectFact = objectFact;
+        this.cache = cache;
+        this.arrayId = ArrayIdMaker.nextID();
+        cache.addCacheArray(this);
+    }
+
+    protected abstract void createAllSubFiles() throws IOException;
+
+    public abstract void close() throws IOException;
+
+    /**
+     * Gets an element at a given index.
+     * 
+     * @param index
+     *            The element index to access.
+     * @return The element at this index.
+     * @throws IOException
+     */
+    public T get(long index) throws IOException {
+        checkIndex(index);
+        RecordBlock block = (RecordBlock) pinBlock(index, false);
+        try {
+            return objectFact.createCacheObject(block.buffer(),
+                    block.offsetOf(indexInBlock(index)));
+        } finally {
+            cache.unpinBlock(block);
+        }
+    }
+
+    public void set(long index, T v) throws IOException {
+        checkIndex(index);
+        RecordBlock block = (RecordBlock) pinBlock(index, true);
+        try {
+            v.write(block.buffer(), block.offsetOf(indexInBlock(index)));
+        } finally {
+            cache.unpinBlock(block);
+        }
+    }
+
+    /**
+     * Copies records into a buffer in their binary form, a block at a time,
+     * without decoding them.
+     * 
+     * @param from
+     *            Index of the first record.
+     * @param count
+     *            Number of records.
+     * @param dst
+     *            Buffer with room for count records. Its position is moved
+     *            past them.
+     * @throws IOException
+     */
+    public void readRange(long from, int count, ByteBuffer dst)
+            throws IOException {
+        checkRange(from, count);
+        long index = from;
+        long end = from + count;
+        while (index < end) {
+            int offset = indexInBlock(index);
+            int n = (int) Math.min(end - index, cache.getBlockSize() - offset);
+            CacheBlock block = pinBlock(index, false);
+            try {
+                block.storeRange(offset, n, dst);
+            } finally {
+                cache.unpinBlock(block);
+            }
+            index += n;
+        }
+    }
+
+    /**
+     * Overwrites records with binary records from a buffer, a block at a
+     * time, without decoding them.
+     * 
+     * @param from
+     *            Index of the first record.
+     * @param count
+     *            Number of records.
+     * @param src
+     *            Buffer positioned at the first record. Its position is moved
+     *            past the records.
+     * @throws IOException
+     */
+    public void writeRange(long from, int count, ByteBuffer src)
+            throws IOException {
+        checkRange(from, count);
+        long index = from;
+        long end = from + count;
+        while (index < end) {
+            int offset = indexInBlock(index);
+            int n = (int) Math.min(end - index, cache.getBlockSize() - offset);
+            CacheBlock block = pinBlock(index, true);
+            try {
+                block.loadRange(offset, n, src);
+            } finally {
+                cache.unpinBlock(block);
+            }
+            index += n;
+        }
+    }
+
+    /**
+     * Copies count records to another array, or to another place in this
+     * one. Overlapping ranges are copied as if through a temporary array.
+     * 
+     * @param from
+     *            Index of the first record to copy.
+     * @param dest
+     *            Array to copy to, with the same record width.
+     * @param destIndex
+     *            Index in dest of the first copied record.
+     * @param count
+     *            Number of records.
+     * @throws IOException
+     */
+    public void copyRange(long from, CacheArray<T> dest, long destIndex,
+            long count) throws IOException {
+        checkRange(from, count);
+        dest.checkRange(destIndex, count);
+        if (dest.getRecordWidth() != getRecordWidth()) {
+            throw new IllegalArgumentException("Record widths differ: "
+                    + getRecordWidth() + " and " + dest.getRecordWidth());
+        }
+
+        int chunk = (int) cache.getBlockSize();
+        ByteBuffer buf = ByteBuffer.allocate(chunk * getRecordWidth());
+        // Copy from the end when the destination starts inside the source.
+        boolean backwards = dest == this && destIndex > from
+                && destIndex < from + count;
+        for (long done = 0; done < count;) {
+            int n = (int) Math.min(chunk, count - done);
+            long offset = backwards ? count - done - n : done;
+            buf.clear();
+            readRange(from + offset, n, buf);
+            buf.flip();
+            dest.writeRange(destIndex + offset, n, buf);
+            done += n;
+        }
+    }
+
+    /**
+     * Sets count records starting at from to the given value. The value is
+     * encoded once and copied in as whole blocks.
+     * 
+     * @throws IOException
+     */
+    public void fill(long from, long count, T value) throws IOException {
+        checkRange(from, count);
+        int width = getRecordWidth();
+        int chunk = (int) Math.min(count, cache.getBlockSize());
+        ByteBuffer pattern = ByteBuffer.allocate(chunk * width);
+        for (int i = 0; i < chunk; i++) {
+            value.write(pattern, i * width);
+        }
+        for (long done = 0; done < count;) {
+            int n = (int) Math.min(chunk, count - done);
+            pattern.clear();
+            writeRange(from + done, n, pattern);
+            done += n;
+        }
+    }
+
+    protected void checkIndex(long index) {
+        if (index >= size()) {
+            throw new IndexOutOfBoundsException(
+                    "Attempted to access element out of bounds.");
+        }
+    }
+
+    protected void checkRange(long from, long count) {
+        if (from < 0 || count < 0 || from + count > size()) {
+            throw new IndexOutOfBoundsException("Range " + from + " + "
+                    + count + " out of bounds for size " + size() + ".");
+        }
+    }
+
+    /**
+     * Pins the cached block holding the given index. It must be handed back
+     * with cache.unpinBlock once the caller is done with it.
+     * 
+     * @param index
+     *            The element index to access.
+     * @param write
+     *            Whether the block is going to be modified.
+     * @return The block holding the index.
+     * @throws IOException
+     */
+    protected CacheBlock pinBlock(long index, boolean write)
+            throws IOException {
+        return cache.pinBlock(index / cache.getBlockSize(), this, write);
+    }
+
+    protected int indexInBlock(long index) {
+        return (int) (index % cache.getBlockSize());
+    }
+
+    /**
+     * Creates an empty block for this array. The cache fills it when the block
+     * is pulled from file.
+     * 
+     * @param capacity
+     *            Number of records the block can hold.
+     * @return A new block.
+     */
+    public CacheBlock newBlock(int capacity) {
+        return new RecordBlock(capacity, getRecordWidth());
+    }
+
+    public int getId() {
+        return arrayId;
+    }
+    
+    public CacheObjectFactory<T> getFactory() {
+    	return objectFact;
+    }
+
+    /**
+     * Number of bytes each binary record of this array takes up.
+     * 
+     * @return The record width in bytes.
+     */
+    public int getRecordWidth() {
+        return objectFact.getRecordWidth();
+    }
+
+    /**
+     * Name of the binary sub-file holding the given chunk of this array.
+     * 
+     * @param subFileNum
+     *            The index of the sub-file.
+     * @return The sub-file name.
+     */
+    public String getSubFileName(long subFileNum) {
+        return getBaseFileName() + "_" + subFileNum + ".bin";
+    }
+
+    public abstract long size();
+
+    public abstract String getBaseFileName();
+
+    public LRUCache getCache() {
+        return cache;
+    }
+}
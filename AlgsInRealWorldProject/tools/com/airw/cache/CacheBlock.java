@@ -0,0 +1,99 @@
+package com.airw.cache;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A block held in the cache together with its dirty bit. A block only needs
+ * to be written back on eviction once one of its entries has been set.
+ * Subclasses decide how the records are held in memory and how they are
+ * converted to and from the fixed-width records of the sub-files.
+ * 
+ * A block is pinned while a caller works on it and the cache never evicts a
+ * pinned block.
+ *
+ */
+public abstract class CacheBlock {
+
+    private boolean dirty;
+    private final AtomicInteger pins;
+
+    public CacheBlock() {
+        this.dirty = false;
+        this.pins = new AtomicInteger();
+    }
+
+    /**
+     * @return Number of records held by this block.
+     */
+    public abstract int size();
+
+    /**
+     * Fills the block from the bytes of a sub-file.
+     * 
+     * @param src
+     *            Buffer positioned at the first record of the block.
+     * @param numRecords
+     *            Number of records to read.
+     */
+    public abstract void load(ByteBuffer src, int numRecords);
+
+    /**
+     * Writes all records of the block into a buffer in sub-file format.
+     * 
+     * @param dst
+     *            Buffer with room for size() records.
+     */
+    public abstract void store(ByteBuffer dst);
+
+    /**
+     * Overwrites some of the records of the block with records in sub-file
+     * format.
+     * 
+     * @param from
+     *            Index of the first record to overwrite.
+     * @param count
+     *            Number of records.
+     * @param src
+     *            Buffer positioned at the first new record.
+     */
+    public abstract void loadRange(int from, int count, ByteBuffer src);
+
+    /**
+     * Writes some of the records of the block into a buffer in sub-file
+     * format.
+     * 
+     * @param from
+     *            Index of the first record to write.
+     * @param count
+     *            Number of records.
+     * @param dst
+     *            Buffer with room for count records.
+     */
+    public abstract void storeRange(int from, int count, ByteBuffer dst);
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markDirty() {
+        dirty = true;
+    }
+
+    public void markClean() {
+        dirty = false;
+    }
+
+    public void pin() {
+        pins.incrementAndGet();
+    }
+
+    public void unpin() {
+        pins.decrementAndGet();
+    }
+
+    public boolean isPinned() {
+        return pins.get() > 0;
+    }
+
+}
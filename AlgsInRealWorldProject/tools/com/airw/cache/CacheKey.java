@@ -1,36 +1,45 @@
-package com.airw.cache;
-
-public class CacheKey {
-
-    private int id;
-    private long blockNumber;
-
-    public CacheKey(int arrayId, long blockNumber) {
-        id = arrayId;
-        this.blockNumber = blockNumber;
-    }
-
-    public int getId() {
-        return id;
-    }
-
-    public long getBlockNumber() {
-        return blockNumber;
-    }
-
-    @Override
-    public boolean equals(Object o) {
-        if (o instanceof CacheKey) {
-            return ((id == ((CacheKey) o).getId()) && (blockNumber == ((CacheKey) o)
-                    .getBlockNumber()));
-        }
-        return false;
-    }
-
-    @Override
-    public int hashCode() {
-        String comp = id + "," + blockNumber;
-        return comp.hashCode();
-    }
-
-}
+package com.airw.cache;
+
+/**
+ * Packs the (arrayId, blockNumber) pair identifying a cached block into a
+ * single long, so cache lookups do not allocate a key object.
+ *
+ */
+public final class CacheKey {
+
+    private static final long BLOCK_MASK = 0xFFFFFFFFL;
+
+    private CacheKey() {
+    }
+
+    public static long pack(int arrayId, long blockNumber) {
+        if (blockNumber < 0 || blockNumber > BLOCK_MASK) {
+            throw new IllegalArgumentException("Block number " + blockNumber
+                    + " does not fit in a cache key.");
+        }
+        return ((long) arrayId << 32) | blockNumber;
+    }
+
+    public static int getId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static long getBlockNumber(long key) {
+        return key & BLOCK_MASK;
+    }
+
+    /**
+     * Spreads the bits of a packed key, so that consecutive block numbers do
+     * not land next to each other.
+     */
+    public static int hash(long key) {
+        // Finalizer of MurmurHash3.
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb3f97e1a85d3L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+}
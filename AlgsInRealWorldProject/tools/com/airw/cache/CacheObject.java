@@ -1,13 +1,26 @@
-package com.airw.cache;
-
-
-public abstract class CacheObject {
-
-    public abstract String myToString();
-
-    @Override
-    public String toString() {
-        return myToString();
-    }
-
-}
+package com.airw.cache;
+
+import java.nio.ByteBuffer;
+
+
+public abstract class CacheObject {
+
+    public abstract String myToString();
+
+    /**
+     * Encodes the fields of this object as a fixed-width binary record. The
+     * matching CacheObjectFactory reads them back from the same offset.
+     * 
+     * @param buf
+     *            The buffer to write into.
+     * @param offset
+     *            Absolute offset of the record in buf.
+     */
+    public abstract void write(ByteBuffer buf, int offset);
+
+    @Override
+    public String toString() {
+        return myToString();
+    }
+
+}
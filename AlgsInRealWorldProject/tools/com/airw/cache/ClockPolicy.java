@@ -0,0 +1,57 @@
+package com.airw.cache;
+
+/**
+ * Second chance (CLOCK) replacement. Every slot has a reference bit that is
+ * set on access. The hand sweeps the slots, clearing set bits, and evicts
+ * the first block whose bit is already clear.
+ *
+ */
+public class ClockPolicy implements EvictionPolicy {
+
+    private boolean[] resident;
+    private boolean[] referenced;
+    private int hand;
+
+    public ClockPolicy(int capacity) {
+        resident = new boolean[capacity];
+        referenced = new boolean[capacity];
+        hand = 0;
+    }
+
+    @Override
+    public void onHit(int slot) {
+        referenced[slot] = true;
+    }
+
+    @Override
+    public void onInsert(int slot, long key) {
+        resident[slot] = true;
+        referenced[slot] = true;
+    }
+
+    @Override
+    public void onRemove(int slot, long key, boolean evicted) {
+        resident[slot] = false;
+        referenced[slot] = false;
+    }
+
+    @Override
+    public int selectVictim(long incomingKey, Slots slots) {
+        // Two full sweeps clear every bit, so a third finds a victim unless
+        // everything is pinned.
+        for (int i = 0; i < 3 * resident.length; i++) {
+            int slot = hand;
+            hand = (hand + 1) % resident.length;
+            if (!resident[slot] || slots.isPinned(slot)) {
+                continue;
+            }
+            if (referenced[slot]) {
+                referenced[slot] = false;
+            } else {
+                return slot;
+            }
+        }
+        throw new IllegalStateException("All cache blocks are pinned.");
+    }
+
+}
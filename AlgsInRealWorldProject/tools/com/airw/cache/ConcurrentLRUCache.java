@@ -0,0 +1,207 @@
+package com.airw.cache;
+
+import java.io.IOException;
+
+/**
+ * A cache that can be shared by several threads. The blocks are striped over
+ * a number of segments by the hash of their key. Every segment is an
+ * independent LRUCache with its own share of the blocks and its own eviction
+ * policy, guarded by the segment's monitor, so threads working on different
+ * segments do not contend. The ConcurrentLRUCache itself has no slots.
+ * 
+ * Blocks handed out by pinBlock stay pinned until unpinBlock and are never
+ * evicted in between, so a caller can read or write a block outside the
+ * segment lock. Because each segment evicts on its own, miss counts can
+ * differ slightly from a single LRUCache of the same total size.
+ *
+ */
+public class ConcurrentLRUCache extends LRUCache {
+
+    private LRUCache[] segments;
+    private int segmentMask;
+
+    /**
+     * Constructor for ConcurrentLRUCache.
+     * 
+     * @param blockSize
+     *            Number of entries for each block in cache.
+     * @param numBlocksInCache
+     *            Number of blocks in the cache, over all segments.
+     * @param numBlocksPerSubFile
+     *            Number of blocks in each sub-file.
+     * @param numSegments
+     *            Number of lock stripes, rounded up to a power of two.
+     */
+    public ConcurrentLRUCache(int blockSize, int numBlocksInCache,
+            int numBlocksPerSubFile, int numSegments) {
+        this(blockSize, numBlocksInCache, numBlocksPerSubFile, numSegments,
+                EvictionPolicyType.LRU);
+    }
+
+    /**
+     * Constructor for a ConcurrentLRUCache whose segments all use the given
+     * eviction policy.
+     */
+    public ConcurrentLRUCache(int blockSize, int numBlocksInCache,
+            int numBlocksPerSubFile, int numSegments,
+            EvictionPolicyType policyType) {
+        this(blockSize, numBlocksInCache, numBlocksPerSubFile, numSegments,
+                policyType, new ArrayRegistry());
+    }
+
+    private ConcurrentLRUCache(int blockSize, int numBlocksInCache,
+            int numBlocksPerSubFile, int numSegments,
+            EvictionPolicyType policyType, ArrayRegistry cacheArrays) {
+        // The segments hold the blocks, this cache only keeps the totals.
+        super(blockSize, numBlocksInCache, numBlocksPerSubFile, policyType,
+                cacheArrays, 0);
+
+        int n = Integer.highestOneBit(Math.max(1, numSegments) * 2 - 1);
+        if (n > numBlocksInCache) {
+            throw new IllegalArgumentException("Cannot split "
+                    + numBlocksInCache + " blocks into " + n + " segments.");
+        }
+        segments = new LRUCache[n];
+        segmentMask = n - 1;
+        for (int i = 0; i < n; i++) {
+            // Spread the remainder over the first segments.
+            int segmentBlocks = numBlocksInCache / n
+                    + (i < numBlocksInCache % n ? 1 : 0);
+            segments[i] = new LRUCache(blockSize, segmentBlocks,
+                    numBlocksPerSubFile, policyType, cacheArrays);
+        }
+    }
+
+    private LRUCache segmentFor(int arrayId, long blockNumber) {
+        return segments[CacheKey.hash(CacheKey.pack(arrayId, blockNumber))
+                & segmentMask];
+    }
+
+    @Override
+    public CacheBlock pinBlock(long blockNumber, CacheArray<?> ca,
+            boolean write) throws IOException {
+        LRUCache segment = segmentFor(ca.getId(), blockNumber);
+        synchronized (segment) {
+            return segment.pinBlock(blockNumber, ca, write);
+        }
+    }
+
+    @Override
+    public void dump(CacheArray<?> ca) throws IOException {
+        for (LRUCache segment : segments) {
+            synchronized (segment) {
+                segment.dump(ca);
+            }
+        }
+    }
+
+    /**
+     * All segments share one write-behind flusher.
+     */
+    @Override
+    void useFlusher(WriteBehindFlusher flusher) {
+        super.useFlusher(flusher);
+        for (LRUCache segment : segments) {
+            synchronized (segment) {
+                segment.useFlusher(flusher);
+            }
+        }
+    }
+
+    /**
+     * Does nothing, and isReadAhead() stays false. Consecutive blocks are
+     * hashed to different segments, so no segment sees a sequential stream,
+     * and one shared prefetcher would have to look into other segments while
+     * holding the lock of its own.
+     */
+    @Override
+    public void enableReadAhead(int depth) {
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    public int getNumSegments() {
+        return segments.length;
+    }
+
+    @Override
+    public long getHits() {
+        long hits = 0;
+        for (LRUCache segment : segments) {
+            synchronized (segment) {
+                hits += segment.getHits();
+            }
+        }
+        return hits;
+    }
+
+    @Override
+    public long getAccesses() {
+        long accesses = 0;
+        for (LRUCache segment : segments) {
+            synchronized (segment) {
+                accesses += segment.getAccesses();
+            }
+        }
+        return accesses;
+    }
+
+    @Override
+    public long getMisses() {
+        long misses = 0;
+        for (LRUCache segment : segments) {
+            synchronized (segment) {
+                misses += segment.getMisses();
+            }
+        }
+        return misses;
+    }
+
+    @Override
+    public long getCleanEvictions() {
+        long evictions = 0;
+        for (LRUCache segment : segments) {
+            synchronized (segment) {
+                evictions += segment.getCleanEvictions();
+            }
+        }
+        return evictions;
+    }
+
+    @Override
+    public long getDirtyEvictions() {
+        long evictions = 0;
+        for (LRUCache segment : segments) {
+            synchronized (segment) {
+                evictions += segment.getDirtyEvictions();
+            }
+        }
+        return evictions;
+    }
+
+    @Override
+    public long getDumpWrites() {
+        long writes = 0;
+        for (LRUCache segment : segments) {
+            synchronized (segment) {
+                writes += segment.getDumpWrites();
+            }
+        }
+        return writes;
+    }
+
+    @Override
+    public long getDroppedEvictions() {
+        long evictions = 0;
+        for (LRUCache segment : segments) {
+            synchronized (segment) {
+                evictions += segment.getDroppedEvictions();
+            }
+        }
+        return evictions;
+    }
+
+}
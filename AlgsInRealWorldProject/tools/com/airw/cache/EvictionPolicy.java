@@ -0,0 +1,46 @@
+package com.airw.cache;
+
+/**
+ * Decides which cached block an LRUCache gives up when it needs room. The
+ * cache keeps its blocks in a fixed set of slots numbered 0 to capacity - 1
+ * and tells the policy about every hit, insert and removal, identifying the
+ * block by its slot and its packed CacheKey.
+ *
+ */
+public interface EvictionPolicy {
+
+    /**
+     * Lets a policy skip blocks that are in use.
+     */
+    public interface Slots {
+
+        public boolean isPinned(int slot);
+    }
+
+    /**
+     * A resident block was accessed again.
+     */
+    public void onHit(int slot);
+
+    /**
+     * A block was loaded into a free slot.
+     */
+    public void onInsert(int slot, long key);
+
+    /**
+     * A block left its slot, either evicted to make room or dropped by
+     * LRUCache.dump.
+     */
+    public void onRemove(int slot, long key, boolean evicted);
+
+    /**
+     * Chooses the block to evict before the block with incomingKey is loaded
+     * into a full cache.
+     * 
+     * @return A resident slot that is not pinned.
+     * @throws IllegalStateException
+     *             If every resident block is pinned.
+     */
+    public int selectVictim(long incomingKey, Slots slots);
+
+}
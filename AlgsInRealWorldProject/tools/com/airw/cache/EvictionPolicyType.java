@@ -0,0 +1,30 @@
+package com.airw.cache;
+
+/**
+ * The eviction policies an LRUCache can be built with.
+ *
+ */
+public enum EvictionPolicyType {
+
+    LRU, CLOCK, TWO_Q, ARC, LIRS;
+
+    /**
+     * @param capacity
+     *            Number of blocks in the cache.
+     */
+    public EvictionPolicy create(int capacity) {
+        switch (this) {
+        case CLOCK:
+            return new ClockPolicy(capacity);
+        case TWO_Q:
+            return new TwoQueuePolicy(capacity);
+        case ARC:
+            return new ARCPolicy(capacity);
+        case LIRS:
+            return new LIRSPolicy(capacity);
+        default:
+            return new LRUPolicy(capacity);
+        }
+    }
+
+}
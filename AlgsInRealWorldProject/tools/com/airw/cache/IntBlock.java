@@ -0,0 +1,59 @@
+package com.airw.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A block of primitive ints, stored as 4 byte big-endian records.
+ *
+ */
+public class IntBlock extends CacheBlock {
+
+    public static final int RECORD_WIDTH = 4;
+
+    private int[] values;
+    private int size;
+
+    public IntBlock(int capacity) {
+        this.values = new int[capacity];
+        this.size = 0;
+    }
+
+    public int get(int indexInBlock) {
+        return values[indexInBlock];
+    }
+
+    public void set(int indexInBlock, int v) {
+        values[indexInBlock] = v;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void load(ByteBuffer src, int numRecords) {
+        src.asIntBuffer().get(values, 0, numRecords);
+        src.position(src.position() + numRecords * RECORD_WIDTH);
+        size = numRecords;
+    }
+
+    @Override
+    public void store(ByteBuffer dst) {
+        dst.asIntBuffer().put(values, 0, size);
+        dst.position(dst.position() + size * RECORD_WIDTH);
+    }
+
+    @Override
+    public void loadRange(int from, int count, ByteBuffer src) {
+        src.asIntBuffer().get(values, from, count);
+        src.position(src.position() + count * RECORD_WIDTH);
+    }
+
+    @Override
+    public void storeRange(int from, int count, ByteBuffer dst) {
+        dst.asIntBuffer().put(values, from, count);
+        dst.position(dst.position() + count * RECORD_WIDTH);
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.airw.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Low Inter-reference Recency Set replacement of Jiang and Zhang. Most of the
+ * cache holds LIR blocks, those with a short reuse distance, and only a small
+ * part holds HIR blocks, which are queued FIFO and evicted first. The stack S
+ * records recency for LIR blocks and for recently seen HIR blocks, including
+ * non-resident ones, so an HIR block that comes back before the oldest LIR
+ * block is touched again is promoted in its place.
+ *
+ */
+public class LIRSPolicy implements EvictionPolicy {
+
+    private static final class Entry {
+        long key;
+        int slot; // NIL once the block is no longer resident.
+        boolean lir;
+
+        Entry(long key, int slot, boolean lir) {
+            this.key = key;
+            this.slot = slot;
+            this.lir = lir;
+        }
+    }
+
+    private int lirCapacity;
+    private int stackLimit; // Bound on S, counting non-resident entries.
+    private int numLir;
+    private Entry[] entryOf;
+    // Both maps keep insertion order, the bottom of S and the front of Q
+    // are their first entries.
+    private LinkedHashMap<Long, Entry> stack;
+    private LinkedHashMap<Long, Entry> hirQueue;
+
+    public LIRSPolicy(int capacity) {
+        int hirCapacity = Math.max(1, capacity / 100);
+        lirCapacity = Math.max(1, capacity - hirCapacity);
+        stackLimit = 3 * capacity;
+        numLir = 0;
+        entryOf = new Entry[capacity];
+        stack = new LinkedHashMap<Long, Entry>();
+        hirQueue = new LinkedHashMap<Long, Entry>();
+    }
+
+    @Override
+    public void onHit(int slot) {
+        Entry e = entryOf[slot];
+        if (e.lir) {
+            pushTop(e);
+            prune();
+        } else if (stack.containsKey(e.key)) {
+            pushTop(e);
+            hirQueue.remove(e.key);
+            e.lir = true;
+            numLir++;
+            demoteBottom();
+        } else {
+            pushTop(e);
+            hirQueue.remove(e.key);
+            hirQueue.put(e.key, e);
+        }
+    }
+
+    @Override
+    public void onInsert(int slot, long key) {
+        Entry e = stack.get(key);
+        if (e != null) {
+            // A non-resident HIR block came back within the LIR reuse
+            // distance.
+            e.slot = slot;
+            pushTop(e);
+            e.lir = true;
+            numLir++;
+            if (numLir > lirCapacity) {
+                demoteBottom();
+            }
+        } else {
+            e = new Entry(key, slot, numLir < lirCapacity);
+            pushTop(e);
+            if (e.lir) {
+                numLir++;
+            } else {
+                hirQueue.put(key, e);
+            }
+        }
+        entryOf[slot] = e;
+        bound();
+    }
+
+    @Override
+    public void onRemove(int slot, long key, boolean evicted) {
+        Entry e = entryOf[slot];
+        entryOf[slot] = null;
+        e.slot = SlotList.NIL;
+        if (e.lir) {
+            // Only pinning or a dump takes a LIR block out of the cache.
+            stack.remove(key);
+            e.lir = false;
+            numLir--;
+            prune();
+        } else {
+            hirQueue.remove(key);
+            if (!evicted) {
+                stack.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public int selectVictim(long incomingKey, Slots slots) {
+        for (Entry e : hirQueue.values()) {
+            if (!slots.isPinned(e.slot)) {
+                return e.slot;
+            }
+        }
+        for (Entry e : stack.values()) {
+            if (e.lir && !slots.isPinned(e.slot)) {
+                return e.slot;
+            }
+        }
+        throw new IllegalStateException("All cache blocks are pinned.");
+    }
+
+    private void pushTop(Entry e) {
+        stack.remove(e.key);
+        stack.put(e.key, e);
+    }
+
+    /**
+     * Turns the LIR block at the bottom of S into a resident HIR block.
+     */
+    private void demoteBottom() {
+        Iterator<Entry> it = stack.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (e.lir) {
+                it.remove();
+                e.lir = false;
+                numLir--;
+                hirQueue.put(e.key, e);
+                break;
+            }
+        }
+        prune();
+    }
+
+    /**
+     * Removes HIR entries from the bottom of S until a LIR block is there.
+     */
+    private void prune() {
+        Iterator<Entry> it = stack.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (e.lir) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    /**
+     * Drops the oldest non-resident entries once S grows past its limit.
+     */
+    private void bound() {
+        Iterator<Entry> it = stack.values().iterator();
+        while (stack.size() > stackLimit && it.hasNext()) {
+            Entry e = it.next();
+            if (!e.lir && e.slot == SlotList.NIL) {
+                it.remove();
+            }
+        }
+    }
+
+}
@@ -1,317 +1,451 @@
-package com.airw.cache;
-
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-
-public class LRUCache {
-
-    private int blockSize; // Number of entries in a block.
-    private int numBlocksInCache; // Number of blocks in the cache.
-    private LRUMap<CacheKey, List<String>> cache;
-    private List<CacheArray<?>> cacheArrays;
-    private long hits;
-    private long accesses;
-    private int numBlocksPerSubFile;
-
-    /**
-     * Constructor for LRUCache.
-     * 
-     * @param blockSize
-     *            Number of entries for each block in cache.
-     * @param numBlocksInCache
-     *            Number of blocks in the cache.
-     * @param fileName
-     *            Name of input file.
-     * @throws IOException
-     *             Thrown on any error opening and scanning file.
-     */
-    public LRUCache(int blockSize, final int numBlocksInCache,
-            int numBlocksPerSubFile) throws IOException {
-
-        this.blockSize = blockSize;
-        this.numBlocksInCache = numBlocksInCache;
-        this.numBlocksPerSubFile = Math.max(numBlocksPerSubFile, 1);
-
-        cache = new LRUMap<CacheKey, List<String>>(numBlocksInCache, .75F, true);
-
-        cacheArrays = new LinkedList<CacheArray<?>>();
-
-        // Set the hits.
-        hits = 0;
-        accesses = 0;
-    }
-
-    public void addCacheArray(CacheArray<?> ca) {
-        cacheArrays.add(ca);
-    }
-
-    public void removeCacheArray(CacheArray<?> ca) {
-        cacheArrays.remove(ca);
-    }
-
-    /**
-     * Gets an element at a given index.
-     * 
-     * @param index
-     *            The element index to access.
-     * @return The element at this index.
-     * @throws IOException
-     */
-    public String get(long index, CacheArray<?> ca) throws IOException {
-        long blockNumber = index / blockSize;
-        int indexInBlock = (int) (index % blockSize);
-        CacheKey key = new CacheKey(ca.getId(), blockNumber);
-        accesses++;
-        if (cache.containsKey(key)) {
-            hits++;
-            return cache.get(key).get(indexInBlock);
-        } else {
-            List<String> block = pullBlock(ca, blockNumber);
-            cache.put(key, block);
-            if (cache.getEldestEntry() != null) {
-                CacheKey evicKey = cache.getEldestEntry().getKey();
-                CacheArray<?> evicArray = getArrayMatch(evicKey);
-                writeEntries(evicArray, evicKey.getBlockNumber(), cache
-                        .getEldestEntry().getValue());
-            }
-            return block.get(indexInBlock);
-        }
-    }
-
-    private CacheArray<?> getArrayMatch(CacheKey evicKey) {
-        for (CacheArray<?> ca : cacheArrays) {
-            if (ca.getId() == evicKey.getId()) {
-                return ca;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Sets the value of the index to the given string.
-     * 
-     * @param index
-     *            The index to modify.
-     * @param s
-     *            The string we are setting the index to.
-     * @throws IOException
-     */
-    public void set(long index, String v, CacheArray<?> ca) throws IOException {
-        accesses++;
-        long blockNumber = index / blockSize;
-        int indexInBlock = (int) (index % blockSize);
-        CacheKey key = new CacheKey(ca.getId(), blockNumber);
-        if (cache.containsKey(key)) {
-            hits++;
-            cache.get(key).set(indexInBlock, v);
-        } else {
-            List<String> block = pullBlock(ca, blockNumber);
-            block.set(indexInBlock, v);
-            cache.put(key, block);
-            if (cache.getEldestEntry() != null) {
-                CacheKey evicKey = cache.getEldestEntry().getKey();
-                CacheArray<?> evicArray = getArrayMatch(evicKey);
-                writeEntries(evicArray, evicKey.getBlockNumber(), cache
-                        .getEldestEntry().getValue());
-            }
-        }
-    }
-
-    /**
-     * Pulls a given block from the file.
-     * 
-     * @param blockNumber
-     *            The index of the block to pull.
-     * @return The block pulled from file.
-     * @throws IOException
-     */
-    private List<String> pullBlock(CacheArray<?> ca, long blockNumber)
-            throws IOException {
-        int subFileNum = (int) (blockNumber / (numBlocksPerSubFile));
-        int blockIndexInFile = (int) (blockNumber % numBlocksPerSubFile);
-        String subFileName = ca.getBaseFileName() + "_" + subFileNum + ".txt";
-
-        File file = new File(subFileName);
-        BufferedReader br = new BufferedReader(new FileReader(file));
-        // Skip first few lines of file.
-        for (int i = 0; i < blockIndexInFile * blockSize; i++) {
-            br.readLine();
-        }
-        // Read block.
-        List<String> block = new ArrayList<String>();
-        String line;
-        for (int i = 0; i < blockSize; i++) {
-            line = br.readLine();
-            if (line == null) {
-                break;
-            }
-            block.add(line);
-        }
-        br.close();
-        return block;
-    }
-
-    /**
-     * Writes a block to file.
-     * 
-     * @param blockNumber
-     *            The index of the block to write.
-     * @param eldestEntries
-     *            The entries to write.
-     * @throws IOException
-     */
-    private void writeEntries(CacheArray<?> ca, long blockNumber,
-            List<String> entries) throws IOException {
-        int subFileNum = (int) (blockNumber / (numBlocksPerSubFile));
-        int blockIndexInFile = (int) (blockNumber % numBlocksPerSubFile);
-        String subFileName = ca.getBaseFileName() + "_" + subFileNum;
-
-        String copyFileName = copyFile(subFileName);
-
-        File copyFile = new File(copyFileName);
-        BufferedReader br = new BufferedReader(new FileReader(copyFile));
-        FileWriter fw = new FileWriter(subFileName + ".txt");
-        BufferedWriter bw = new BufferedWriter(fw);
-        // Copy first few lines of file.
-        for (int i = 0; i < blockIndexInFile * blockSize; i++) {
-            bw.write(br.readLine());
-            bw.newLine();
-        }
-        // Write changes block.
-        for (int i = 0; i < entries.size(); i++) {
-            br.readLine();
-            bw.write(entries.get(i));
-            bw.newLine();
-        }
-        String line;
-        while ((line = br.readLine()) != null) {
-            bw.write(line);
-            bw.newLine();
-        }
-        br.close();
-        bw.close();
-
-        copyFile.delete();
-    }
-
-    public void dump(CacheArray<?> ca) throws IOException {
-        List<CacheKey> keysToRemove = new LinkedList<CacheKey>();
-        for (Entry<CacheKey, List<String>> e : cache.entrySet()) {
-            if (e.getKey().getId() == ca.getId()) {
-                writeEntries(ca, e.getKey().getBlockNumber(), e.getValue());
-                keysToRemove.add(e.getKey());
-            }
-        }
-        for (CacheKey ck : keysToRemove) {
-            cache.remove(ck);
-        }
-        // my need to wory about last entry
-        if (keysToRemove.size() > 0) {
-            cache.nullifyEldest();
-        }
-    }
-
-    /**
-     * Copy's the contents of a file to a new file of the same name but with
-     * "copy" appended to the name. Returns this new file name.
-     * 
-     * @param subFileName
-     *            The base file name.
-     * @return The copy file name.
-     * @throws IOException
-     */
-    private String copyFile(String subFileName) throws IOException {
-        String copyFileName = subFileName + "_copy.txt";
-        BufferedReader br = new BufferedReader(new FileReader(new File(
-                subFileName + ".txt")));
-        FileWriter fw = new FileWriter(copyFileName);
-        BufferedWriter bw = new BufferedWriter(fw);
-        String line;
-        while ((line = br.readLine()) != null) {
-            bw.write(line);
-            bw.newLine();
-        }
-        br.close();
-        bw.close();
-        return copyFileName;
-    }
-
-    public int cacheSize() {
-        return numBlocksInCache * blockSize;
-    }
-
-    public long getHits() {
-        return hits;
-    }
-
-    public long getAccesses() {
-        return accesses;
-    }
-
-    public long getMisses(){
-        return accesses - hits;
-    }
-    public long getBlockSize() {
-        return blockSize;
-    }
-
-    public long getNumBlocksInCache() {
-        return numBlocksInCache;
-    }
-
-    public long numBlocksPerSubFile() {
-        return numBlocksPerSubFile;
-    }
-
-    /**
-     * Our LRU map.
-     * 
-     * @param <K>
-     *            The key object type.
-     * @param <V>
-     *            The value object type.
-     */
-    public class LRUMap<K, V> extends LinkedHashMap<K, V> {
-
-        /**
-         * 
-         */
-        private static final long serialVersionUID = 1L;
-        private Map.Entry<K, V> eldest;
-
-        public LRUMap(int initialCapacity, float loadFactor, boolean accessOrder) {
-            super(initialCapacity, loadFactor, accessOrder);
-            this.eldest = null;
-        }
-
-        @Override
-        public boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-            if (size() > numBlocksInCache) {
-                this.eldest = eldest;
-            }
-            return size() > numBlocksInCache;
-        }
-
-        public Map.Entry<K, V> getEldestEntry() {
-            return eldest;
-        }
-
-        public void nullifyEldest() {
-            this.eldest = null;
-        }
-    }
-
-    public List<CacheArray<?>> getCacheArrays() {
-        return cacheArrays;
-    }
-}
+package com.airw.cache;
+
+import java.io.IOException;
+import java.util.List;
+
+public class LRUCache {
+
+    private int blockSize; // Number of entries in a block.
+    private int numBlocksInCache; // Number of blocks in the cache.
+    private static final int NIL = -1;
+
+    // The cached blocks live in numBlocksInCache slots. index maps a packed
+    // CacheKey to its slot and policy decides which slot to give up.
+    private BlockTable index;
+    private long[] slotKeys;
+    private CacheBlock[] slotBlocks;
+    private EvictionPolicyType policyType;
+    private EvictionPolicy policy;
+    private EvictionPolicy.Slots pins;
+    private int[] freeSlots;
+    private int numFree;
+    private ArrayRegistry cacheArrays;
+    private long hits;
+    private long accesses;
+    private long cleanEvictions;
+    private long dirtyEvictions;
+    private long droppedEvictions;
+    private long dumpWrites;
+    private int numBlocksPerSubFile;
+    private BlockStore store;
+    private WriteBehindFlusher flusher; // Null while writes are synchronous.
+    private ReadAheadPrefetcher readAhead; // Null unless enabled.
+
+    /**
+     * Constructor for LRUCache.
+     * 
+     * @param blockSize
+     *            Number of entries for each block in cache.
+     * @param numBlocksInCache
+     *            Number of blocks in the cache.
+     * @param fileName
+     *            Name of input file.
+     * @throws IOException
+     *             Thrown on any error opening and scanning file.
+     */
+    public LRUCache(int blockSize, final int numBlocksInCache,
+            int numBlocksPerSubFile) throws IOException {
+        this(blockSize, numBlocksInCache, numBlocksPerSubFile,
+                EvictionPolicyType.LRU);
+    }
+
+    /**
+     * Constructor for a cache with the given eviction policy. The other
+     * parameters are as for LRUCache(int, int, int).
+     * 
+     * @param policyType
+     *            Policy that picks the block to evict on a miss.
+     */
+    public LRUCache(int blockSize, final int numBlocksInCache,
+            int numBlocksPerSubFile, EvictionPolicyType policyType)
+            throws IOException {
+        this(blockSize, numBlocksInCache, numBlocksPerSubFile, policyType,
+                new ArrayRegistry());
+    }
+
+    /**
+     * Constructor for a cache that shares its array registry, used for the
+     * segments of a ConcurrentLRUCache.
+     */
+    LRUCache(int blockSize, int numBlocksInCache, int numBlocksPerSubFile,
+            EvictionPolicyType policyType, ArrayRegistry cacheArrays) {
+        this(blockSize, numBlocksInCache, numBlocksPerSubFile, policyType,
+                cacheArrays, numBlocksInCache);
+    }
+
+    /**
+     * Constructor for a cache that reports numBlocksInCache blocks but only
+     * has numSlots slots of its own. A ConcurrentLRUCache passes 0, as its
+     * segments hold all the blocks.
+     */
+    LRUCache(int blockSize, int numBlocksInCache, int numBlocksPerSubFile,
+            EvictionPolicyType policyType, ArrayRegistry cacheArrays,
+            int numSlots) {
+
+        this.blockSize = blockSize;
+        this.numBlocksInCache = numBlocksInCache;
+        this.numBlocksPerSubFile = Math.max(numBlocksPerSubFile, 1);
+        this.store = new BlockStore(blockSize, this.numBlocksPerSubFile);
+
+        index = new BlockTable(numSlots);
+        slotKeys = new long[numSlots];
+        slotBlocks = new CacheBlock[numSlots];
+        this.policyType = policyType;
+        policy = policyType.create(numSlots);
+        pins = new EvictionPolicy.Slots() {
+            @Override
+            public boolean isPinned(int slot) {
+                return slotBlocks[slot].isPinned();
+            }
+        };
+        freeSlots = new int[numSlots];
+        for (int i = 0; i < numSlots; i++) {
+            freeSlots[i] = numSlots - 1 - i;
+        }
+        numFree = numSlots;
+
+        this.cacheArrays = cacheArrays;
+
+        // Set the hits.
+        hits = 0;
+        accesses = 0;
+        cleanEvictions = 0;
+        dirtyEvictions = 0;
+        droppedEvictions = 0;
+        dumpWrites = 0;
+    }
+
+    public void addCacheArray(CacheArray<?> ca) {
+        cacheArrays.register(ca);
+    }
+
+    public void removeCacheArray(CacheArray<?> ca) {
+        cacheArrays.unregister(ca);
+    }
+
+    /**
+     * Gets the block with the given number, pulling it from file on a miss.
+     * The block is returned pinned, so it stays in the cache until the caller
+     * hands it back through unpinBlock.
+     * 
+     * @param blockNumber
+     *            The index of the block to access.
+     * @param ca
+     *            The array owning the block.
+     * @param write
+     *            Whether the caller is going to modify the block.
+     * @return The cached block, pinned.
+     * @throws IOException
+     */
+    public CacheBlock pinBlock(long blockNumber, CacheArray<?> ca,
+            boolean write) throws IOException {
+        long key = CacheKey.pack(ca.getId(), blockNumber);
+        accesses++;
+        int slot = index.get(key);
+        if (slot != NIL) {
+            hits++;
+            policy.onHit(slot);
+        } else {
+            if (numFree == 0) {
+                evict(policy.selectVictim(key, pins));
+            }
+            CacheBlock pulled = flusher == null ? null : flusher.reclaim(ca,
+                    blockNumber, blockSize);
+            if (pulled == null && readAhead != null) {
+                pulled = readAhead.take(key);
+            }
+            if (pulled == null) {
+                pulled = pullBlock(ca, blockNumber);
+            }
+            // Only take the slot once the block is in hand, so a failed read
+            // does not leak it.
+            slot = freeSlots[--numFree];
+            slotKeys[slot] = key;
+            slotBlocks[slot] = pulled;
+            index.put(key, slot);
+            policy.onInsert(slot, key);
+            if (readAhead != null) {
+                readAhead.onMiss(ca, blockNumber, this);
+            }
+        }
+        CacheBlock block = slotBlocks[slot];
+        if (write) {
+            block.markDirty();
+        }
+        block.pin();
+        return block;
+    }
+
+    /**
+     * Hands back a block obtained from pinBlock.
+     * 
+     * @param block
+     *            The pinned block.
+     */
+    public void unpinBlock(CacheBlock block) {
+        block.unpin();
+    }
+
+    /**
+     * Removes the block in the given slot from the cache. Only dirty blocks
+     * are written back, clean ones are dropped.
+     * 
+     * @throws IOException
+     */
+    private void evict(int slot) throws IOException {
+        long key = slotKeys[slot];
+        CacheBlock block = slotBlocks[slot];
+        CacheArray<?> evicArray = cacheArrays.lookup(CacheKey.getId(key));
+        // Blocks of an array that was collected without close() have nowhere
+        // to go and are dropped.
+        if (block.isDirty() && evicArray == null) {
+            droppedEvictions++;
+        } else if (block.isDirty()) {
+            if (readAhead != null) {
+                readAhead.invalidate(key);
+            }
+            if (flusher != null) {
+                flusher.enqueue(evicArray, CacheKey.getBlockNumber(key), block);
+            } else {
+                writeEntries(evicArray, CacheKey.getBlockNumber(key), block);
+            }
+            dirtyEvictions++;
+        } else {
+            cleanEvictions++;
+        }
+        release(slot, true);
+    }
+
+    private void release(int slot, boolean evicted) {
+        index.remove(slotKeys[slot]);
+        policy.onRemove(slot, slotKeys[slot], evicted);
+        slotBlocks[slot] = null;
+        freeSlots[numFree++] = slot;
+    }
+
+    /**
+     * Pulls a given block from the file.
+     * 
+     * @param blockNumber
+     *            The index of the block to pull.
+     * @return The block pulled from file.
+     * @throws IOException
+     */
+    private CacheBlock pullBlock(CacheArray<?> ca, long blockNumber)
+            throws IOException {
+        return store.readBlock(ca, blockNumber);
+    }
+
+    /**
+     * Writes a block to file.
+     * 
+     * @param blockNumber
+     *            The index of the block to write.
+     * @param block
+     *            The block to write.
+     * @throws IOException
+     */
+    private void writeEntries(CacheArray<?> ca, long blockNumber,
+            CacheBlock block) throws IOException {
+        store.writeBlock(ca, blockNumber, block);
+    }
+
+    /**
+     * Switches evictions to write-behind. Dirty blocks are then written by a
+     * background thread and evicting only waits once queueCapacity blocks are
+     * waiting. Call close() to stop the thread.
+     * 
+     * @param queueCapacity
+     *            Number of evicted blocks that may wait for their write.
+     */
+    public void enableWriteBehind(int queueCapacity) {
+        if (flusher == null) {
+            useFlusher(new WriteBehindFlusher(store, queueCapacity));
+        }
+    }
+
+    void useFlusher(WriteBehindFlusher flusher) {
+        this.flusher = flusher;
+    }
+
+    /**
+     * Turns on read-ahead. After two misses on consecutive blocks of an
+     * array, the next depth blocks are read on a background thread. A block
+     * read ahead still counts as a miss when it is first accessed, but is
+     * counted in getPrefetchHits() as well. Check isReadAhead() afterwards,
+     * as a cache may not support it.
+     * 
+     * @param depth
+     *            Number of blocks read ahead of a sequential scan.
+     */
+    public void enableReadAhead(int depth) {
+        if (readAhead == null) {
+            readAhead = new ReadAheadPrefetcher(store, blockSize, depth, 2);
+        }
+    }
+
+    /**
+     * Whether the block is in the cache or still waiting for its
+     * write-behind, in which case read-ahead must not read it from disk.
+     */
+    boolean isCachedOrPending(long key) {
+        return index.get(key) != NIL
+                || (flusher != null && flusher.isPending(key));
+    }
+
+    /**
+     * Waits for queued write-behind blocks and stops the flusher and
+     * read-ahead threads. The cache can still be used afterwards, with
+     * synchronous reads and writes.
+     * 
+     * @throws IOException
+     *             If a write-behind write failed.
+     */
+    public void close() throws IOException {
+        if (readAhead != null) {
+            readAhead.close();
+            readAhead = null;
+        }
+        if (flusher != null) {
+            WriteBehindFlusher f = flusher;
+            useFlusher(null);
+            f.close();
+        }
+    }
+
+    /**
+     * Writes back the dirty blocks of the given array and drops all its
+     * blocks from the cache. Queued write-behind blocks are on disk when this
+     * returns.
+     * 
+     * @throws IOException
+     */
+    public void dump(CacheArray<?> ca) throws IOException {
+        if (readAhead != null) {
+            readAhead.invalidateArray(ca);
+        }
+        if (flusher != null) {
+            flusher.drain();
+        }
+        for (int slot = 0; slot < slotBlocks.length; slot++) {
+            long key = slotKeys[slot];
+            if (slotBlocks[slot] != null && CacheKey.getId(key) == ca.getId()) {
+                if (slotBlocks[slot].isDirty()) {
+                    writeEntries(ca, CacheKey.getBlockNumber(key),
+                            slotBlocks[slot]);
+                    dumpWrites++;
+                }
+                release(slot, false);
+            }
+        }
+    }
+
+    /**
+     * @return Whether evicted blocks are written by a background thread.
+     */
+    public boolean isWriteBehind() {
+        return flusher != null;
+    }
+
+    /**
+     * @return Whether sequential misses trigger read-ahead.
+     */
+    public boolean isReadAhead() {
+        return readAhead != null;
+    }
+
+    /**
+     * @return Whether several threads may use this cache at once.
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    public int cacheSize() {
+        return numBlocksInCache * blockSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getAccesses() {
+        return accesses;
+    }
+
+    public long getMisses(){
+        return accesses - hits;
+    }
+
+    /**
+     * @return Number of evicted blocks that were dropped without a write.
+     */
+    public long getCleanEvictions() {
+        return cleanEvictions;
+    }
+
+    /**
+     * @return Number of evicted blocks that had to be written back.
+     */
+    public long getDirtyEvictions() {
+        return dirtyEvictions;
+    }
+
+    /**
+     * @return Number of dirty evicted blocks that were dropped because their
+     *         array had been collected without close(). They are counted
+     *         neither as clean nor as dirty evictions.
+     */
+    public long getDroppedEvictions() {
+        return droppedEvictions;
+    }
+
+    /**
+     * @return Number of dirty blocks written back by dump, when their array
+     *         was closed or dumped.
+     */
+    public long getDumpWrites() {
+        return dumpWrites;
+    }
+
+    /**
+     * @return Number of blocks written back, by evictions and by dump.
+     */
+    public long getBlocksWritten() {
+        return getDirtyEvictions() + getDumpWrites();
+    }
+
+    /**
+     * @return Number of blocks submitted for read-ahead.
+     */
+    public long getPrefetchIssued() {
+        return readAhead == null ? 0 : readAhead.getPrefetchIssued();
+    }
+
+    /**
+     * @return Number of misses served by a block that was read ahead.
+     */
+    public long getPrefetchHits() {
+        return readAhead == null ? 0 : readAhead.getPrefetchHits();
+    }
+
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    public long getNumBlocksInCache() {
+        return numBlocksInCache;
+    }
+
+    public EvictionPolicyType getPolicyType() {
+        return policyType;
+    }
+
+    public long numBlocksPerSubFile() {
+        return numBlocksPerSubFile;
+    }
+
+    public List<CacheArray<?>> getCacheArrays() {
+        return cacheArrays.liveArrays();
+    }
+}
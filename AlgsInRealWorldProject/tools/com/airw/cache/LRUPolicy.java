@@ -0,0 +1,39 @@
+package com.airw.cache;
+
+/**
+ * Evicts the least recently used block.
+ *
+ */
+public class LRUPolicy implements EvictionPolicy {
+
+    private SlotList recency;
+
+    public LRUPolicy(int capacity) {
+        recency = new SlotList(capacity);
+    }
+
+    @Override
+    public void onHit(int slot) {
+        recency.moveToFront(slot);
+    }
+
+    @Override
+    public void onInsert(int slot, long key) {
+        recency.addFirst(slot);
+    }
+
+    @Override
+    public void onRemove(int slot, long key, boolean evicted) {
+        recency.remove(slot);
+    }
+
+    @Override
+    public int selectVictim(long incomingKey, Slots slots) {
+        int slot = recency.lastUnpinned(slots);
+        if (slot == SlotList.NIL) {
+            throw new IllegalStateException("All cache blocks are pinned.");
+        }
+        return slot;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.airw.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A block of primitive longs, stored as 8 byte big-endian records.
+ *
+ */
+public class LongBlock extends CacheBlock {
+
+    public static final int RECORD_WIDTH = 8;
+
+    private long[] values;
+    private int size;
+
+    public LongBlock(int capacity) {
+        this.values = new long[capacity];
+        this.size = 0;
+    }
+
+    public long get(int indexInBlock) {
+        return values[indexInBlock];
+    }
+
+    public void set(int indexInBlock, long v) {
+        values[indexInBlock] = v;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void load(ByteBuffer src, int numRecords) {
+        src.asLongBuffer().get(values, 0, numRecords);
+        src.position(src.position() + numRecords * RECORD_WIDTH);
+        size = numRecords;
+    }
+
+    @Override
+    public void store(ByteBuffer dst) {
+        dst.asLongBuffer().put(values, 0, size);
+        dst.position(dst.position() + size * RECORD_WIDTH);
+    }
+
+    @Override
+    public void loadRange(int from, int count, ByteBuffer src) {
+        src.asLongBuffer().get(values, from, count);
+        src.position(src.position() + count * RECORD_WIDTH);
+    }
+
+    @Override
+    public void storeRange(int from, int count, ByteBuffer dst) {
+        dst.asLongBuffer().put(values, from, count);
+        dst.position(dst.position() + count * RECORD_WIDTH);
+    }
+
+}
@@ -0,0 +1,236 @@
+package com.airw.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Detects sequential misses and reads the following blocks ahead of time on
+ * background threads. Every array has a few streams, so interleaved scans of
+ * the same array, such as the two runs of a merge, are each recognised. Once
+ * a stream has missed on two consecutive blocks, the next depth blocks that
+ * are neither cached nor being read are submitted to the executor.
+ * 
+ * A prefetched block enters the cache on its first miss, so it still counts
+ * as a miss but does not wait for the disk. It is used by a single LRUCache
+ * from one thread.
+ *
+ */
+public class ReadAheadPrefetcher {
+
+    private static final int STREAMS_PER_ARRAY = 4;
+    private static final int SEQUENTIAL_MISSES = 2;
+
+    private static final class Stream {
+        long lastBlock;
+        long prefetchedTo; // Last block submitted for this stream.
+        int run; // Consecutive sequential misses.
+        long lastUse;
+    }
+
+    private BlockStore store;
+    private int blockSize;
+    private int depth;
+    private ExecutorService executor;
+    private HashMap<Integer, List<Stream>> streams;
+    private HashMap<Long, Future<CacheBlock>> inFlight;
+    private long clock;
+    private long prefetchIssued;
+    private long prefetchHits;
+
+    /**
+     * @param depth
+     *            Number of blocks read ahead of a sequential stream.
+     * @param numThreads
+     *            Number of reader threads.
+     */
+    public ReadAheadPrefetcher(BlockStore store, int blockSize, int depth,
+            int numThreads) {
+        this.store = store;
+        this.blockSize = blockSize;
+        this.depth = Math.max(1, depth);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, numThreads),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "read-ahead");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        this.streams = new HashMap<Integer, List<Stream>>();
+        this.inFlight = new HashMap<Long, Future<CacheBlock>>();
+        this.clock = 0;
+        this.prefetchIssued = 0;
+        this.prefetchHits = 0;
+    }
+
+    /**
+     * Returns the prefetched block with the given key, waiting for its read
+     * if needed, or null if it was not prefetched or the read failed.
+     */
+    public CacheBlock take(long key) {
+        Future<CacheBlock> f = inFlight.remove(key);
+        if (f == null) {
+            return null;
+        }
+        CacheBlock block = await(f);
+        if (block != null) {
+            prefetchHits++;
+        }
+        return block;
+    }
+
+    /**
+     * Records a miss and issues read-ahead if it continues a stream.
+     * 
+     * @param cache
+     *            The cache, asked which blocks need no read.
+     */
+    public void onMiss(CacheArray<?> ca, long blockNumber, LRUCache cache) {
+        Stream s = streamFor(ca.getId(), blockNumber);
+        s.lastUse = ++clock;
+        if (s.run < SEQUENTIAL_MISSES) {
+            return;
+        }
+
+        long numBlocks = (ca.size() + blockSize - 1) / blockSize;
+        long from = Math.max(s.prefetchedTo, blockNumber) + 1;
+        long to = Math.min(blockNumber + depth, numBlocks - 1);
+        for (long b = from; b <= to; b++) {
+            long key = CacheKey.pack(ca.getId(), b);
+            if (!inFlight.containsKey(key) && !cache.isCachedOrPending(key)) {
+                inFlight.put(key, executor.submit(read(ca, b)));
+                prefetchIssued++;
+            }
+        }
+        s.prefetchedTo = Math.max(s.prefetchedTo, to);
+    }
+
+    /**
+     * Drops a prefetch whose data may no longer match the sub-file.
+     */
+    public void invalidate(long key) {
+        Future<CacheBlock> f = inFlight.remove(key);
+        if (f != null) {
+            f.cancel(false);
+        }
+    }
+
+    /**
+     * Forgets the streams of an array and waits for its reads still running,
+     * so its sub-files can be deleted.
+     */
+    public void invalidateArray(CacheArray<?> ca) {
+        streams.remove(ca.getId());
+        Iterator<Map.Entry<Long, Future<CacheBlock>>> it = inFlight
+                .entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Future<CacheBlock>> e = it.next();
+            if (CacheKey.getId(e.getKey()) == ca.getId()) {
+                await(e.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Stops the reader threads, dropping outstanding prefetches.
+     */
+    public void close() {
+        for (Future<CacheBlock> f : inFlight.values()) {
+            f.cancel(false);
+        }
+        inFlight.clear();
+        executor.shutdown();
+    }
+
+    public long getPrefetchIssued() {
+        return prefetchIssued;
+    }
+
+    public long getPrefetchHits() {
+        return prefetchHits;
+    }
+
+    /**
+     * Finds the stream that blockNumber continues, or restarts the least
+     * recently used stream of the array at blockNumber.
+     */
+    private Stream streamFor(int arrayId, long blockNumber) {
+        List<Stream> list = streams.get(arrayId);
+        if (list == null) {
+            list = new ArrayList<Stream>(STREAMS_PER_ARRAY);
+            streams.put(arrayId, list);
+        }
+        Stream oldest = null;
+        for (Stream s : list) {
+            if (s.lastBlock + 1 == blockNumber) {
+                s.lastBlock = blockNumber;
+                s.run++;
+                return s;
+            }
+            if (oldest == null || s.lastUse < oldest.lastUse) {
+                oldest = s;
+            }
+        }
+        Stream s;
+        if (list.size() < STREAMS_PER_ARRAY) {
+            s = new Stream();
+            list.add(s);
+        } else {
+            s = oldest;
+            // Read-ahead the old stream did not use yet is wasted.
+            for (long b = s.lastBlock + 1; b <= s.prefetchedTo; b++) {
+                invalidate(CacheKey.pack(arrayId, b));
+            }
+        }
+        s.lastBlock = blockNumber;
+        s.prefetchedTo = blockNumber;
+        s.run = 1;
+        return s;
+    }
+
+    private Callable<CacheBlock> read(final CacheArray<?> ca,
+            final long blockNumber) {
+        return new Callable<CacheBlock>() {
+            @Override
+            public CacheBlock call() throws IOException {
+                return store.readBlock(ca, blockNumber);
+            }
+        };
+    }
+
+    private static CacheBlock await(Future<CacheBlock> f) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return f.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    // The demand read will report the problem, if any.
+                    return null;
+                } catch (CancellationException e) {
+                    return null;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
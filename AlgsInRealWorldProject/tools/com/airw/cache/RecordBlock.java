@@ -0,0 +1,62 @@
+package com.airw.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A block of CacheObject records kept in their encoded binary form. Objects
+ * are decoded straight from the buffer when they are read.
+ *
+ */
+public class RecordBlock extends CacheBlock {
+
+    private ByteBuffer buffer;
+    private int size;
+    private int recordWidth;
+
+    public RecordBlock(int capacity, int recordWidth) {
+        this.buffer = ByteBuffer.allocate(capacity * recordWidth);
+        this.size = 0;
+        this.recordWidth = recordWidth;
+    }
+
+    /**
+     * @return The buffer holding the encoded records.
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return Offset of the given record in buffer().
+     */
+    public int offsetOf(int indexInBlock) {
+        return indexInBlock * recordWidth;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void load(ByteBuffer src, int numRecords) {
+        src.get(buffer.array(), 0, numRecords * recordWidth);
+        size = numRecords;
+    }
+
+    @Override
+    public void store(ByteBuffer dst) {
+        dst.put(buffer.array(), 0, size * recordWidth);
+    }
+
+    @Override
+    public void loadRange(int from, int count, ByteBuffer src) {
+        src.get(buffer.array(), from * recordWidth, count * recordWidth);
+    }
+
+    @Override
+    public void storeRange(int from, int count, ByteBuffer dst) {
+        dst.put(buffer.array(), from * recordWidth, count * recordWidth);
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.airw.cache;
+
+/**
+ * Intrusive doubly linked list over cache slot indices, ordered from the
+ * front (most recent) to the back (least recent). Used by the eviction
+ * policies to keep their queues without allocating on every access.
+ *
+ */
+public class SlotList {
+
+    public static final int NIL = -1;
+
+    private int[] prev;
+    private int[] next;
+    private boolean[] member;
+    private int head;
+    private int tail;
+    private int size;
+
+    public SlotList(int capacity) {
+        prev = new int[capacity];
+        next = new int[capacity];
+        member = new boolean[capacity];
+        head = NIL;
+        tail = NIL;
+        size = 0;
+    }
+
+    public void addFirst(int slot) {
+        prev[slot] = NIL;
+        next[slot] = head;
+        if (head != NIL) {
+            prev[head] = slot;
+        }
+        head = slot;
+        if (tail == NIL) {
+            tail = slot;
+        }
+        member[slot] = true;
+        size++;
+    }
+
+    public void remove(int slot) {
+        if (prev[slot] != NIL) {
+            next[prev[slot]] = next[slot];
+        } else {
+            head = next[slot];
+        }
+        if (next[slot] != NIL) {
+            prev[next[slot]] = prev[slot];
+        } else {
+            tail = prev[slot];
+        }
+        member[slot] = false;
+        size--;
+    }
+
+    public void moveToFront(int slot) {
+        if (slot != head) {
+            remove(slot);
+            addFirst(slot);
+        }
+    }
+
+    public boolean contains(int slot) {
+        return member[slot];
+    }
+
+    /**
+     * @return The slot nearest the back that is not pinned, or NIL.
+     */
+    public int lastUnpinned(EvictionPolicy.Slots slots) {
+        int slot = tail;
+        while (slot != NIL && slots.isPinned(slot)) {
+            slot = prev[slot];
+        }
+        return slot;
+    }
+
+    public int last() {
+        return tail;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+}
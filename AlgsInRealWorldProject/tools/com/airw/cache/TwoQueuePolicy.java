@@ -0,0 +1,88 @@
+package com.airw.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * The full 2Q policy of Johnson and Shasha. Blocks seen for the first time
+ * enter a FIFO queue (A1in). When they are evicted from it their keys are
+ * remembered in a ghost queue (A1out). A block that misses while its key is
+ * still in A1out has been reused, so it is promoted to the main LRU queue
+ * (Am). A scan therefore only flushes A1in and leaves Am alone.
+ *
+ */
+public class TwoQueuePolicy implements EvictionPolicy {
+
+    private static final int NONE = 0;
+    private static final int A1IN = 1;
+    private static final int AM = 2;
+
+    private SlotList a1in;
+    private SlotList am;
+    private int[] queueOf;
+    private LinkedHashSet<Long> a1out;
+    private int kIn; // Target size of A1in.
+    private int kOut; // Maximum number of keys in A1out.
+
+    public TwoQueuePolicy(int capacity) {
+        a1in = new SlotList(capacity);
+        am = new SlotList(capacity);
+        queueOf = new int[capacity];
+        a1out = new LinkedHashSet<Long>();
+        kIn = Math.max(1, capacity / 4);
+        kOut = Math.max(1, capacity / 2);
+    }
+
+    @Override
+    public void onHit(int slot) {
+        // Hits in A1in are deliberately ignored, a second touch shortly after
+        // the first is correlated and says nothing about reuse.
+        if (queueOf[slot] == AM) {
+            am.moveToFront(slot);
+        }
+    }
+
+    @Override
+    public void onInsert(int slot, long key) {
+        if (a1out.remove(key)) {
+            am.addFirst(slot);
+            queueOf[slot] = AM;
+        } else {
+            a1in.addFirst(slot);
+            queueOf[slot] = A1IN;
+        }
+    }
+
+    @Override
+    public void onRemove(int slot, long key, boolean evicted) {
+        if (queueOf[slot] == A1IN) {
+            a1in.remove(slot);
+            if (evicted) {
+                a1out.add(key);
+                if (a1out.size() > kOut) {
+                    Iterator<Long> oldest = a1out.iterator();
+                    oldest.next();
+                    oldest.remove();
+                }
+            }
+        } else {
+            am.remove(slot);
+        }
+        queueOf[slot] = NONE;
+    }
+
+    @Override
+    public int selectVictim(long incomingKey, Slots slots) {
+        SlotList first = a1in.size() > kIn || am.isEmpty() ? a1in : am;
+        SlotList second = first == a1in ? am : a1in;
+        int slot = first.lastUnpinned(slots);
+        if (slot == SlotList.NIL) {
+            slot = second.lastUnpinned(slots);
+        }
+        if (slot == SlotList.NIL) {
+            throw new IllegalStateException("All cache blocks are pinned.");
+        }
+        return slot;
+    }
+
+}
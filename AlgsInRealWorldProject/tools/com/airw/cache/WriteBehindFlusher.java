@@ -0,0 +1,219 @@
+package com.airw.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes evicted dirty blocks back on a background thread. An evicted block
+ * is encoded at once and queued, so the evicting thread only waits when the
+ * queue is full. Until its write is done the block stays in a pending map
+ * keyed by its packed CacheKey, where a miss on the same block finds it
+ * instead of reading stale data from disk.
+ * 
+ * A write that fails is reported by the next call to enqueue, reclaim,
+ * drain or close. The block it was writing, and every block queued after
+ * it, stay pending, so a miss never reads their stale copies from disk.
+ *
+ */
+public class WriteBehindFlusher {
+
+    private static final class Pending {
+        final CacheArray<?> array;
+        final long blockNumber;
+        final long key;
+        final ByteBuffer records;
+
+        Pending(CacheArray<?> array, long blockNumber, long key,
+                ByteBuffer records) {
+            this.array = array;
+            this.blockNumber = blockNumber;
+            this.key = key;
+            this.records = records;
+        }
+    }
+
+    // Queued in place of a block to make the flusher thread exit.
+    private static final Pending STOP = new Pending(null, 0, 0, null);
+
+    private BlockStore store;
+    private BlockingQueue<Pending> queue;
+    private ConcurrentHashMap<Long, Pending> pending;
+    private Thread thread;
+    private int outstanding; // Guarded by this.
+    private volatile IOException failure;
+    private long flushed; // Guarded by this.
+
+    /**
+     * Starts the flusher thread.
+     * 
+     * @param store
+     *            Store the blocks are written to.
+     * @param queueCapacity
+     *            Number of blocks that may wait for their write before
+     *            enqueue blocks.
+     */
+    public WriteBehindFlusher(BlockStore store, int queueCapacity) {
+        this.store = store;
+        this.queue = new ArrayBlockingQueue<Pending>(Math.max(1, queueCapacity));
+        this.pending = new ConcurrentHashMap<Long, Pending>();
+        this.outstanding = 0;
+        this.flushed = 0;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        }, "write-behind-flusher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a dirty block for writing.
+     * 
+     * @throws IOException
+     *             If an earlier write failed.
+     */
+    public void enqueue(CacheArray<?> ca, long blockNumber, CacheBlock block)
+            throws IOException {
+        checkFailure();
+        long key = CacheKey.pack(ca.getId(), blockNumber);
+        Pending p = new Pending(ca, blockNumber, key, store.encode(ca, block));
+        synchronized (this) {
+            outstanding++;
+        }
+        // Later evictions of the same block replace earlier ones, the queue
+        // is drained in order so the last write wins on disk as well.
+        pending.put(key, p);
+        try {
+            queue.put(p);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.remove(key, p);
+            finished();
+            throw new IOException("Interrupted while queueing block "
+                    + blockNumber + " for write-behind.", e);
+        }
+    }
+
+    /**
+     * Returns a fresh copy of a block that is still waiting to be written,
+     * or null if it is not pending.
+     * 
+     * @throws IOException
+     *             If an earlier write failed.
+     */
+    public CacheBlock reclaim(CacheArray<?> ca, long blockNumber,
+            int blockSize) throws IOException {
+        checkFailure();
+        Pending p = pending.get(CacheKey.pack(ca.getId(), blockNumber));
+        if (p == null) {
+            return null;
+        }
+        ByteBuffer records = p.records.duplicate();
+        CacheBlock block = ca.newBlock(blockSize);
+        block.load(records, records.remaining() / ca.getRecordWidth());
+        return block;
+    }
+
+    /**
+     * @return Whether the block with the given key is waiting to be written.
+     */
+    public boolean isPending(long key) {
+        return pending.containsKey(key);
+    }
+
+    /**
+     * Waits until every queued block has been written.
+     * 
+     * @throws IOException
+     *             If a write failed.
+     */
+    public void drain() throws IOException {
+        synchronized (this) {
+            boolean interrupted = false;
+            while (outstanding > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * Drains the queue and stops the flusher thread.
+     * 
+     * @throws IOException
+     *             If a write failed.
+     */
+    public void close() throws IOException {
+        drain();
+        queue.add(STOP);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Number of blocks written by the flusher thread.
+     */
+    public synchronized long getFlushed() {
+        return flushed;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            Pending p;
+            try {
+                p = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (p == STOP) {
+                return;
+            }
+            try {
+                if (failure == null) {
+                    store.writeBuffer(p.array, p.blockNumber,
+                            p.records.duplicate());
+                    synchronized (this) {
+                        flushed++;
+                    }
+                    // Only after the write, so a miss either sees the
+                    // pending block or the written file.
+                    pending.remove(p.key, p);
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                finished();
+            }
+        }
+    }
+
+    private synchronized void finished() {
+        outstanding--;
+        if (outstanding == 0) {
+            notifyAll();
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new IOException("Write-behind flush failed.", e);
+        }
+    }
+
+}